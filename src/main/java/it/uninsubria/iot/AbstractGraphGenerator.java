@@ -0,0 +1,121 @@
+package it.uninsubria.iot;
+
+import edu.uci.ics.jung.graph.DirectedOrderedSparseMultigraph;
+import edu.uci.ics.jung.graph.DirectedSparseMultigraph;
+import it.uninsubria.iot.entities.Provider;
+import it.uninsubria.iot.entities.Service;
+import it.uninsubria.iot.entities.Trust;
+import it.uninsubria.iot.utils.CustomRandom;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * The part of the graph generation shared by all the strategies: the
+ * creation of the providers, the assignment of services and trust levels to
+ * the edges of the skeleton built by the strategy and the selection of the
+ * reputation providers.
+ *
+ * @author Lorenzo Bossi
+ */
+abstract class AbstractGraphGenerator implements TrustGraphGenerator {
+
+    private final CustomRandom _rnd;
+    private final List<Service> _serviceList;
+
+    AbstractGraphGenerator(CustomRandom rnd, List<Service> serviceList) {
+        _rnd = rnd;
+        _serviceList = serviceList;
+    }
+
+    CustomRandom getRandom() {
+        return _rnd;
+    }
+
+    @Override
+    public DirectedSparseMultigraph<Provider, Trust> createGraph(int serviceProvidersNumber, int reputationProvidersNumber, int connectionsNumber) {
+        List<Provider> providers = createProviders(serviceProvidersNumber + reputationProvidersNumber);
+        checkConnections(providers.size(), connectionsNumber);
+        RewiringGraph skeleton = createSkeleton(providers.size(), connectionsNumber);
+        return createTrustGraph(providers, skeleton, reputationProvidersNumber);
+    }
+
+    /**
+     * Places the edges among the providers.
+     *
+     * @param providersNumber the number of providers, at least two if there
+     * are edges.
+     * @param connectionsNumber the number of edges.
+     * @return the skeleton of the graph, its vertices are the indexes of the
+     * providers.
+     */
+    abstract RewiringGraph createSkeleton(int providersNumber, int connectionsNumber);
+
+    /**
+     * Creates the providers, each one with a random set of services.
+     *
+     * @param providersNumber the number of providers.
+     * @return the providers.
+     */
+    List<Provider> createProviders(int providersNumber) {
+        List<Provider> providers = new ArrayList<>(providersNumber);
+        for (int i = 0; i < providersNumber; i++) {
+            Set<Service> services = _rnd.randomSubset(_serviceList, _rnd.getServiceNumber(_serviceList.size()));
+            providers.add(new Provider(String.format("P%02d", i), services));
+        }
+        return providers;
+    }
+
+    static void checkConnections(int providersNumber, int connectionsNumber) {
+        if (connectionsNumber > 0 && providersNumber < 2) {
+            throw new IllegalArgumentException("The list contains less than 2 elements");
+        }
+    }
+
+    /**
+     * Builds the trust graph of the skeleton: every edge gets the trust on a
+     * random service of its target. Sets the reputation providers as the
+     * vertex with most outgoing reputations.
+     *
+     * @param providers the providers, indexed by the vertices of the
+     * skeleton. The list is sorted by decreasing out degree.
+     * @param skeleton the edges.
+     * @param reputationProvidersNumber the number of reputation providers.
+     * @return the graph.
+     */
+    DirectedSparseMultigraph<Provider, Trust> createTrustGraph(List<Provider> providers, RewiringGraph skeleton, int reputationProvidersNumber) {
+        final DirectedSparseMultigraph<Provider, Trust> graph = new DirectedOrderedSparseMultigraph<>();
+        for (Provider p : providers) {
+            graph.addVertex(p);
+        }
+        for (int v = 0; v < providers.size(); v++) {
+            Provider to = providers.get(v);
+            for (int i = 0; i < skeleton.inDegree(v); i++) {
+                Provider from = providers.get(skeleton.getSource(skeleton.getInEdge(v, i)));
+                Service service = _rnd.randomElement(to.getServices());
+                double trust = _rnd.getTrustLevel();
+                Trust t = new Trust(service, trust);
+                graph.addEdge(t, from, to);
+            }
+        }
+
+        selectReputationProviders(graph, providers, reputationProvidersNumber);
+        return graph;
+    }
+
+    /**
+     * Sets the reputation providers as the vertex with most outgoing
+     * reputations.
+     *
+     * @param graph the graph.
+     * @param providers the providers of the graph, the list is sorted by
+     * decreasing out degree.
+     * @param reputationProvidersNumber the number of reputation providers.
+     */
+    static void selectReputationProviders(DirectedSparseMultigraph<Provider, Trust> graph, List<Provider> providers, int reputationProvidersNumber) {
+        providers.sort((Provider o1, Provider o2) -> Integer.compare(graph.outDegree(o2), graph.outDegree(o1)));
+        for (int i = 0; i < providers.size(); i++) {
+            providers.get(i).setOnlyReputation(i < reputationProvidersNumber);
+        }
+    }
+}
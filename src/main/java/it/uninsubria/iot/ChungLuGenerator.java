@@ -0,0 +1,113 @@
+package it.uninsubria.iot;
+
+import it.uninsubria.iot.entities.Service;
+import it.uninsubria.iot.utils.CustomRandom;
+import it.uninsubria.iot.utils.ProportionalRandomPickup;
+import java.util.AbstractList;
+import java.util.List;
+
+/**
+ * Graph generator following the model of Chung and Lu with an expected
+ * power law in degree sequence. The provider i gets the weight
+ * (i + 1)^(-1 / (exponent - 1)), so the expected in degrees follow a power law
+ * with the given exponent; every edge goes from a uniform random provider to
+ * a different provider picked proportionally to its weight. The targets are
+ * picked in constant time with an alias table, so the whole generation takes
+ * O(n + m).
+ *
+ * @author Lorenzo Bossi
+ */
+public class ChungLuGenerator extends AbstractGraphGenerator {
+
+    /**
+     * The default exponent of the power law.
+     */
+    public static final double DEFAULT_EXPONENT = 2.5;
+
+    private final double _exponent;
+
+    public ChungLuGenerator(CustomRandom rnd, List<Service> serviceList) {
+        this(rnd, serviceList, DEFAULT_EXPONENT);
+    }
+
+    /**
+     *
+     * @param rnd the random number generator.
+     * @param serviceList the services of the providers.
+     * @param exponent the exponent of the power law of the in degrees.
+     * @throws IllegalArgumentException if the exponent is not greater than 1.
+     */
+    public ChungLuGenerator(CustomRandom rnd, List<Service> serviceList, double exponent) {
+        super(rnd, serviceList);
+        if (!(exponent > 1)) {
+            throw new IllegalArgumentException("The exponent must be greater than 1");
+        }
+        _exponent = exponent;
+    }
+
+    @Override
+    RewiringGraph createSkeleton(int providersNumber, int connectionsNumber) {
+        CustomRandom rnd = getRandom();
+        RewiringGraph graph = new RewiringGraph(providersNumber, connectionsNumber);
+        if (connectionsNumber <= 0) {
+            return graph;
+        }
+        ProportionalRandomPickup<Integer> targets = createTargets(rnd, providersNumber, _exponent);
+        while (graph.getEdgeCount() < connectionsNumber) {
+            int from = rnd.nextInt(providersNumber);
+            int to;
+            do {
+                to = targets.getNext();
+            } while (from == to);
+            graph.addEdge(from, to);
+        }
+        return graph;
+    }
+
+    /**
+     * Creates the alias table of the weights of the providers.
+     *
+     * @param rnd the random number generator of the table.
+     * @param providersNumber the number of providers.
+     * @param exponent the exponent of the power law.
+     * @return the table, its elements are the indexes of the providers.
+     */
+    static ProportionalRandomPickup<Integer> createTargets(CustomRandom rnd, int providersNumber, double exponent) {
+        double[] weights = new double[providersNumber];
+        double total = 0;
+        for (int i = 0; i < providersNumber; i++) {
+            weights[i] = Math.pow(i + 1, -1 / (exponent - 1));
+            total += weights[i];
+        }
+        // the alias table works on integer scales, fine enough when their
+        // sum is close to the largest int
+        double scale = (Integer.MAX_VALUE / 2) / total;
+        int[] scales = new int[providersNumber];
+        for (int i = 0; i < providersNumber; i++) {
+            scales[i] = (int) Math.max(1, Math.round(weights[i] * scale));
+        }
+        return new ProportionalRandomPickup<>(rnd, new Indexes(providersNumber), i -> scales[i]);
+    }
+
+    /**
+     * The list of the integers [0, size) without storing them.
+     */
+    private static class Indexes extends AbstractList<Integer> {
+
+        private final int _size;
+
+        private Indexes(int size) {
+            _size = size;
+        }
+
+        @Override
+        public Integer get(int index) {
+            return index;
+        }
+
+        @Override
+        public int size() {
+            return _size;
+        }
+    }
+}
@@ -0,0 +1,191 @@
+package it.uninsubria.iot;
+
+import it.uninsubria.iot.entities.Provider;
+import it.uninsubria.iot.entities.Service;
+import it.uninsubria.iot.entities.WorkingUnit;
+import it.uninsubria.iot.graph.CompactTrustGraph;
+import it.uninsubria.iot.graph.Neighborhood;
+import it.uninsubria.iot.graph.SearchScratch;
+import it.uninsubria.iot.graph.ShortestPathTree;
+import it.uninsubria.iot.search.BatchResult;
+import it.uninsubria.iot.search.BranchAndBoundSolver;
+import it.uninsubria.iot.search.SearchResult;
+import it.uninsubria.iot.search.WorkingUnitQuery;
+import it.uninsubria.iot.search.WorkingUnitSolver;
+import it.uninsubria.iot.utils.Cache;
+import it.uninsubria.iot.utils.ConcurrentCache;
+import it.uninsubria.iot.utils.Pair;
+import it.uninsubria.iot.utils.ProvidersCollector;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
+
+/**
+ * A {@link TransitiveTrust} that can be shared among threads. The graph
+ * snapshot and the per service engines are immutable; every thread gets its
+ * own search scratch and the shortest path trees are kept in a concurrent
+ * cache. Queries never lock, two threads asking for the same missing tree may
+ * both compute it. Many working unit queries can be submitted as a batch,
+ * which shares the neighborhoods and the shortest path trees among them.
+ *
+ * @author Lorenzo Bossi
+ */
+public class ConcurrentTransitiveTrust extends TransitiveTrust {
+
+    private final ThreadLocal<SearchScratch> _scratch;
+
+    /**
+     * Uses a concurrent cache of shortest path trees limited to a quarter of
+     * the maximum heap size.
+     *
+     * @param graph the snapshot of the graph to use.
+     */
+    public ConcurrentTransitiveTrust(CompactTrustGraph graph) {
+        this(graph, new ConcurrentCache<>(Runtime.getRuntime().maxMemory() / 4, ShortestPathTree::estimateBytes));
+    }
+
+    /**
+     *
+     * @param graph the snapshot of the graph to use.
+     * @param treeCache a thread safe cache for the shortest path trees.
+     */
+    public ConcurrentTransitiveTrust(CompactTrustGraph graph, Cache<Long, ShortestPathTree> treeCache) {
+        super(graph, treeCache);
+        _scratch = ThreadLocal.withInitial(() -> new SearchScratch(graph.getProviderCount()));
+    }
+
+    @Override
+    protected SearchScratch getScratch() {
+        return _scratch.get();
+    }
+
+    /**
+     * The query results are kept in a concurrent cache.
+     *
+     * @param maxEntries the maximum number of entries.
+     * @return a concurrent cache.
+     */
+    @Override
+    protected <K, V> Cache<K, V> createResultCache(int maxEntries) {
+        return new ConcurrentCache<>(maxEntries);
+    }
+
+    /**
+     * The reputations of a working unit query are computed in parallel.
+     *
+     * @return true.
+     */
+    @Override
+    public boolean isThreadSafe() {
+        return true;
+    }
+
+    /**
+     * Looks for the best working unit of many queries with a
+     * {@link BranchAndBoundSolver} in the common fork-join pool.
+     *
+     * @param queries the queries.
+     * @return the best working unit of every query.
+     */
+    public BatchResult getWorkingUnits(List<WorkingUnitQuery> queries) {
+        return getWorkingUnits(queries, new BranchAndBoundSolver(), ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Looks for the best working unit of many queries. The queries already
+     * in the result cache, if it is enabled, are answered from it. The work
+     * of the others is shared and scheduled on a fork-join pool in three
+     * phases: the neighborhoods of the distinct (customer, depth) pairs are
+     * expanded once; the shortest path tree of every distinct (service,
+     * source) pair is computed once, settling the union of the candidates
+     * all the queries need from it; finally the queries are solved in
+     * parallel, reading the trees from the cache. The tree cache should be
+     * large enough to hold the trees of the batch, otherwise evicted trees
+     * are computed again. Only the results the solver proves optimal are put
+     * in the result cache.
+     *
+     * @param queries the queries.
+     * @param solver the search strategy, it must be thread safe.
+     * @param pool the pool the work is run in.
+     * @return the best working unit of every query.
+     * @throws IllegalArgumentException if a customer is not in the graph or
+     * a service with candidates is not in the graph.
+     */
+    public BatchResult getWorkingUnits(List<WorkingUnitQuery> queries, WorkingUnitSolver solver, ForkJoinPool pool) {
+        long start = System.nanoTime();
+        List<Pair<WorkingUnit, Double>> results = new ArrayList<>(Collections.nCopies(queries.size(), null));
+        Cache<QueryKey, List<Pair<WorkingUnit, Double>>> cache = getResultCache();
+        List<Integer> missing = new ArrayList<>();
+        QueryKey[] keys = new QueryKey[queries.size()];
+        for (int i = 0; i < queries.size(); i++) {
+            WorkingUnitQuery q = queries.get(i);
+            keys[i] = cache == null ? null : queryKey(q.getCustomer(), q.getWorkingPlan(), q.getDepth(), q.getMinSimilarity());
+            List<Pair<WorkingUnit, Double>> cached = keys[i] == null ? null : cache.get(keys[i]);
+            if (cached == null) {
+                missing.add(i);
+            } else {
+                results.set(i, cached.isEmpty() ? null : cached.get(0));
+            }
+        }
+        int n = missing.size();
+
+        long[] neighborhoodKeys = new long[n];
+        for (int i = 0; i < n; i++) {
+            WorkingUnitQuery q = queries.get(missing.get(i));
+            neighborhoodKeys[i] = ((long) providerId(q.getCustomer()) << 32) | q.getDepth();
+        }
+        long[] distinct = LongStream.of(neighborhoodKeys).distinct().toArray();
+        Map<Long, Neighborhood> neighborhoods = new ConcurrentHashMap<>(distinct.length * 2);
+        pool.submit(() -> LongStream.of(distinct).parallel()
+                .forEach(key -> neighborhoods.put(key, createNeighborhood((int) (key >>> 32), (int) key))))
+                .join();
+
+        ProvidersCollector[] collectors = new ProvidersCollector[n];
+        pool.submit(() -> IntStream.range(0, n).parallel().forEach(i -> {
+            WorkingUnitQuery q = queries.get(missing.get(i));
+            collectors[i] = collectProviders(neighborhoods.get(neighborhoodKeys[i]), q.getWorkingPlan(), q.getMinSimilarity());
+        })).join();
+
+        Map<Long, Set<Provider>> trees = new HashMap<>();
+        for (ProvidersCollector collector : collectors) {
+            Set<Provider> sources = new HashSet<>();
+            for (Service service : collector.getWorkingPlan()) {
+                sources.addAll(collector.getCandidates(service));
+            }
+            for (Service service : collector.getWorkingPlan()) {
+                List<Provider> targets = collector.getCandidates(service);
+                if (targets.isEmpty()) {
+                    continue;
+                }
+                long s = serviceId(service);
+                for (Provider source : sources) {
+                    long key = (s << 32) | providerId(source);
+                    trees.computeIfAbsent(key, k -> new HashSet<>()).addAll(targets);
+                }
+            }
+        }
+        pool.submit(() -> trees.entrySet().parallelStream().forEach(e -> {
+            Service service = getGraph().getService((int) (e.getKey() >>> 32));
+            Provider source = getGraph().getProvider((int) (long) e.getKey());
+            getReputations(source, new ArrayList<>(e.getValue()), service);
+        })).join();
+
+        pool.submit(() -> IntStream.range(0, n).parallel().forEach(i -> {
+            SearchResult result = search(collectors[i], 1, solver, null, null, System.nanoTime());
+            int query = missing.get(i);
+            results.set(query, result.getBest());
+            if (keys[query] != null && result.isOptimal()) {
+                cache.put(keys[query], result.getWorkingUnits());
+            }
+        })).join();
+        return new BatchResult(results, System.nanoTime() - start, distinct.length, trees.size());
+    }
+}
@@ -17,17 +17,13 @@
  */
 package it.uninsubria.iot;
 
-import edu.uci.ics.jung.graph.DirectedOrderedSparseMultigraph;
 import edu.uci.ics.jung.graph.DirectedSparseMultigraph;
 import it.uninsubria.iot.entities.Provider;
 import it.uninsubria.iot.entities.Service;
 import it.uninsubria.iot.entities.Trust;
 import it.uninsubria.iot.utils.CustomRandom;
-import it.uninsubria.iot.utils.ProportionalRandomPickup;
-import java.util.ArrayList;
-import java.util.Collection;
+import it.uninsubria.iot.utils.FenwickRandomPickup;
 import java.util.List;
-import java.util.Set;
 
 /**
  * Graph generator class. This class generates graphs according to how is
@@ -36,15 +32,32 @@ import java.util.Set;
  *
  * @author Lorenzo Bossi
  */
-public class GraphGenerator {
+public class GraphGenerator extends AbstractGraphGenerator {
 
-    private final CustomRandom _rnd;
-    private final List<Service> _serviceList;
-    private List<Provider> _providers;
+    private final int _iterations;
 
+    /**
+     * The graphs created through {@link TrustGraphGenerator} are rewired as
+     * many times as they have edges.
+     *
+     * @param rnd the random number generator.
+     * @param serviceList the services of the providers.
+     */
     public GraphGenerator(CustomRandom rnd, List<Service> serviceList) {
-        _rnd = rnd;
-        _serviceList = serviceList;
+        this(rnd, serviceList, -1);
+    }
+
+    /**
+     *
+     * @param rnd the random number generator.
+     * @param serviceList the services of the providers.
+     * @param iterations the number of rewiring iterations of the graphs
+     * created through {@link TrustGraphGenerator}, negative to use the number
+     * of edges.
+     */
+    public GraphGenerator(CustomRandom rnd, List<Service> serviceList, int iterations) {
+        super(rnd, serviceList);
+        _iterations = iterations;
     }
 
     /**
@@ -55,21 +68,20 @@ public class GraphGenerator {
      *
      * @param providersNumber
      * @param connectionsNumber
-     * @return
+     * @return the skeleton of the graph, its vertices are the indexes of the
+     * providers.
      */
-    private DirectedSparseMultigraph<Provider, Object> createRandomGraph(int providersNumber, int connectionsNumber) {
-        _providers = new ArrayList<>(providersNumber);
-
-        DirectedSparseMultigraph<Provider, Object> graph = new DirectedSparseMultigraph<Provider, Object>();
-        List<Provider> providers = new ArrayList<>(providersNumber);
-        for (int i = 0; i < providersNumber; i++) {
-            Set<Service> services = _rnd.randomSubset(_serviceList, _rnd.getServiceNumber(_serviceList.size()));
-            Provider provider = new Provider(String.format("P%02d", i), services);
-            _providers.add(provider);
-            providers.add(provider);
-        }
+    private RewiringGraph createRandomGraph(int providersNumber, int connectionsNumber) {
+        CustomRandom rnd = getRandom();
+        RewiringGraph graph = new RewiringGraph(providersNumber, Math.max(connectionsNumber, 0));
         while (graph.getEdgeCount() < connectionsNumber) {
-            graph.addEdge(new Object(), _rnd.getPair(providers));
+            // the same draws of CustomRandom.getPair
+            int from = rnd.nextInt(providersNumber);
+            int to;
+            do {
+                to = rnd.nextInt(providersNumber);
+            } while (from == to);
+            graph.addEdge(from, to);
         }
         return graph;
     }
@@ -85,41 +97,55 @@ public class GraphGenerator {
      * 4. Pick a vertex y with probability proportional to degree.  <br/>
      * 5. If (x, y) is not an edge in G and x is not equal to y, then remove
      * edge (u, v) and add edge (x, y).
+     * <br/>
+     * Every iteration takes O(log n) time and allocates nothing: the edges
+     * are moved in place in the primitive arrays of the skeleton, and the
+     * in-degrees y is picked proportionally to are kept up to date in a
+     * {@link FenwickRandomPickup}, so every step sees the current degrees.
      *
      * @param graph
      */
-    private void createPowerLawGraph(final DirectedSparseMultigraph<Provider, Object> graph, int iterations) {
-        ProportionalRandomPickup<Provider> propRnd = new ProportionalRandomPickup<>(_rnd, _providers, p -> {
-            Collection<Provider> pred = graph.getPredecessors(p);
-            return pred == null ? 0 : pred.size();
-        });
+    private void createPowerLawGraph(final RewiringGraph graph, int iterations) {
+        CustomRandom rnd = getRandom();
+        int n = graph.getVertexCount();
+        int[] inDegrees = new int[n];
+        for (int v = 0; v < n; v++) {
+            inDegrees[v] = graph.inDegree(v);
+        }
+        FenwickRandomPickup propRnd = new FenwickRandomPickup(rnd, inDegrees);
 
         while (iterations-- > 0) {
             //1. Pick a vertex v at random. If there is no edge incident upon v, we repeat this step until v has nonzero degree.
-            Provider v;
-            Collection<Object> inEdges;
+            int v;
             do {
-                v = _rnd.randomElement(_providers);
-                inEdges = graph.getInEdges(v);
-            } while (inEdges == null || inEdges.isEmpty()); // getInEdges sometimes returns null instead of an empty set;
+                v = rnd.nextInt(n);
+            } while (graph.inDegree(v) == 0);
 
             //2. Pick an edge (u, v) ∈ G at random.
-            Object edge = _rnd.randomElement(inEdges);
+            int edge = graph.getInEdge(v, rnd.nextInt(graph.inDegree(v)));
 
             //3. Pick a vertex x at random.
-            Provider x = _rnd.randomElement(_providers);
+            int x = rnd.nextInt(n);
             //4. Pick a vertex y with probability proportional to degree.
 
-            Provider y = propRnd.getNext();
+            int y = propRnd.getNext();
 
             //5. If (x, y) is not an edge in G and x is not equal to y, then remove edge (u, v) and add edge (x, y).
             if (x != y) { // graph.findEdge(x, y) == null We accept multiple edges between to nodes
-                graph.removeEdge(edge);
-                graph.addEdge(new Object(), x, y);
+                graph.moveEdge(edge, x, y);
+                propRnd.add(v, -1);
+                propRnd.add(y, 1);
             }
         }
     }
 
+    @Override
+    RewiringGraph createSkeleton(int providersNumber, int connectionsNumber) {
+        RewiringGraph skelGraph = createRandomGraph(providersNumber, connectionsNumber);
+        createPowerLawGraph(skelGraph, _iterations < 0 ? connectionsNumber : _iterations);
+        return skelGraph;
+    }
+
     /**
      * Creates a graph which follows power law distribution. Sets the reputation
      * providers as the vertex with most outgoing reputations.
@@ -131,30 +157,10 @@ public class GraphGenerator {
      * @return
      */
     public DirectedSparseMultigraph<Provider, Trust> createGraph(int serviceProvidersNumber, int reputationProvidersNumber, int connectionsNumber, int iterations) {
-        DirectedSparseMultigraph<Provider, Object> skelGraph = createRandomGraph(serviceProvidersNumber + reputationProvidersNumber, connectionsNumber);
+        List<Provider> providers = createProviders(serviceProvidersNumber + reputationProvidersNumber);
+        checkConnections(providers.size(), connectionsNumber);
+        RewiringGraph skelGraph = createRandomGraph(providers.size(), connectionsNumber);
         createPowerLawGraph(skelGraph, iterations);
-        final DirectedSparseMultigraph<Provider, Trust> graph = new DirectedOrderedSparseMultigraph<>();
-        for (Provider p : _providers) {
-            graph.addVertex(p);
-        }
-        for (Provider to : _providers) {
-            Collection<Object> edges = skelGraph.getInEdges(to);
-            if (edges == null) {
-                continue;
-            }
-            for (Object edge : edges) {
-                Provider from = skelGraph.getSource(edge);
-                Service service = _rnd.randomElement(to.getServices());
-                double trust = _rnd.getTrustLevel();
-                Trust t = new Trust(service, trust);
-                graph.addEdge(t, from, to);
-            }
-        }
-
-        _providers.sort((Provider o1, Provider o2) -> Integer.compare(graph.outDegree(o2), graph.outDegree(o1)));
-        for (int i = 0; i < _providers.size(); i++) {
-            _providers.get(i).setOnlyReputation(i < reputationProvidersNumber);
-        }
-        return graph;
+        return createTrustGraph(providers, skelGraph, reputationProvidersNumber);
     }
 }
@@ -0,0 +1,172 @@
+package it.uninsubria.iot;
+
+import edu.uci.ics.jung.graph.DirectedOrderedSparseMultigraph;
+import edu.uci.ics.jung.graph.DirectedSparseMultigraph;
+import it.uninsubria.iot.entities.Provider;
+import it.uninsubria.iot.entities.Service;
+import it.uninsubria.iot.entities.Trust;
+import it.uninsubria.iot.utils.CustomRandom;
+import it.uninsubria.iot.utils.ProportionalRandomPickup;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+import org.apache.commons.math3.random.JDKRandomGenerator;
+
+/**
+ * Graph generator which runs on a fork-join pool. The graph follows the
+ * model of {@link ChungLuGenerator}, whose edges are independent of each
+ * other; the steady state model of {@link GraphGenerator} is a sequential
+ * chain of rewirings and cannot be split.
+ * <br/>
+ * The providers and the edge slots are split in a fixed number of contiguous
+ * partitions. Every partition draws from its own random stream, split from
+ * the seed in a fixed order, and writes its own range of primitive arrays, so
+ * the graph depends only on the seed and on the number of partitions, not on
+ * the threads which run them. The arrays are merged into the JUNG graph at
+ * the end.
+ *
+ * @author Lorenzo Bossi
+ */
+public class ParallelGraphGenerator implements TrustGraphGenerator {
+
+    /**
+     * The number of partitions of the convenience constructor. It is fixed,
+     * not taken from the number of cores, so that a seed gives the same graph
+     * on every machine; it is large enough to keep a pool of usual size busy.
+     */
+    public static final int DEFAULT_PARTITIONS = 64;
+
+    private final List<Service> _serviceList;
+    private final long _seed;
+    private final int _partitions;
+    private final ForkJoinPool _pool;
+    private final double _exponent;
+
+    /**
+     * Uses {@link #DEFAULT_PARTITIONS} partitions run in the common pool. The
+     * graph depends on the number of partitions, so it is the same as the one
+     * built with the full constructor only when that number is the same.
+     *
+     * @param serviceList the services of the providers.
+     * @param seed the seed of the random streams.
+     */
+    public ParallelGraphGenerator(List<Service> serviceList, long seed) {
+        this(serviceList, seed, DEFAULT_PARTITIONS, ForkJoinPool.commonPool(), ChungLuGenerator.DEFAULT_EXPONENT);
+    }
+
+    /**
+     *
+     * @param serviceList the services of the providers.
+     * @param seed the seed of the random streams.
+     * @param partitions the number of partitions, the graph depends on it.
+     * @param pool the pool the partitions are run in.
+     * @param exponent the exponent of the power law of the in degrees.
+     * @throws IllegalArgumentException if partitions is less than 1 or the
+     * exponent is not greater than 1.
+     */
+    public ParallelGraphGenerator(List<Service> serviceList, long seed, int partitions, ForkJoinPool pool, double exponent) {
+        if (partitions < 1) {
+            throw new IllegalArgumentException("At least a partition is required");
+        }
+        if (!(exponent > 1)) {
+            throw new IllegalArgumentException("The exponent must be greater than 1");
+        }
+        _serviceList = serviceList;
+        _seed = seed;
+        _partitions = partitions;
+        _pool = pool;
+        _exponent = exponent;
+    }
+
+    public int getPartitions() {
+        return _partitions;
+    }
+
+    @Override
+    public DirectedSparseMultigraph<Provider, Trust> createGraph(int serviceProvidersNumber, int reputationProvidersNumber, int connectionsNumber) {
+        int n = serviceProvidersNumber + reputationProvidersNumber;
+        int m = Math.max(connectionsNumber, 0);
+        AbstractGraphGenerator.checkConnections(n, m);
+        SplittableRandom root = new SplittableRandom(_seed);
+        CustomRandom[] providerStreams = createStreams(root);
+        CustomRandom[] edgeStreams = createStreams(root);
+
+        Map<Service, Integer> serviceIds = new HashMap<>();
+        for (int i = 0; i < _serviceList.size(); i++) {
+            serviceIds.put(_serviceList.get(i), i);
+        }
+        Provider[] providers = new Provider[n];
+        // the services of every provider in the order of the list: the
+        // order of the sets depends on the identity hash codes
+        Service[][] providerServices = new Service[n][];
+        _pool.submit(() -> IntStream.range(0, _partitions).parallel().forEach(p -> {
+            CustomRandom rnd = providerStreams[p];
+            for (int i = start(p, n); i < start(p + 1, n); i++) {
+                Set<Service> services = rnd.randomSubset(_serviceList, rnd.getServiceNumber(_serviceList.size()));
+                providers[i] = new Provider(String.format("P%02d", i), services);
+                providerServices[i] = services.toArray(new Service[services.size()]);
+                Arrays.sort(providerServices[i], Comparator.comparing(serviceIds::get));
+            }
+        })).join();
+
+        int[] sources = new int[m];
+        int[] targets = new int[m];
+        Service[] services = new Service[m];
+        double[] levels = new double[m];
+        if (m > 0) {
+            // the table is only read, every partition picks with its stream
+            ProportionalRandomPickup<Integer> weights = ChungLuGenerator.createTargets(edgeStreams[0], n, _exponent);
+            _pool.submit(() -> IntStream.range(0, _partitions).parallel().forEach(p -> {
+                CustomRandom rnd = edgeStreams[p];
+                for (int e = start(p, m); e < start(p + 1, m); e++) {
+                    int from = rnd.nextInt(n);
+                    int to;
+                    do {
+                        to = weights.getNext(rnd);
+                    } while (from == to);
+                    sources[e] = from;
+                    targets[e] = to;
+                    services[e] = providerServices[to][rnd.nextInt(providerServices[to].length)];
+                    levels[e] = rnd.getTrustLevel();
+                }
+            })).join();
+        }
+
+        final DirectedSparseMultigraph<Provider, Trust> graph = new DirectedOrderedSparseMultigraph<>();
+        for (Provider p : providers) {
+            graph.addVertex(p);
+        }
+        for (int e = 0; e < m; e++) {
+            graph.addEdge(new Trust(services[e], levels[e]), providers[sources[e]], providers[targets[e]]);
+        }
+        AbstractGraphGenerator.selectReputationProviders(graph, new ArrayList<>(Arrays.asList(providers)), reputationProvidersNumber);
+        return graph;
+    }
+
+    /**
+     * Splits a random stream per partition.
+     */
+    private CustomRandom[] createStreams(SplittableRandom root) {
+        CustomRandom[] streams = new CustomRandom[_partitions];
+        for (int p = 0; p < _partitions; p++) {
+            JDKRandomGenerator rnd = new JDKRandomGenerator();
+            rnd.setSeed(root.split().nextLong());
+            streams[p] = new CustomRandom(rnd);
+        }
+        return streams;
+    }
+
+    /**
+     * Returns the first element of a partition.
+     */
+    private int start(int partition, int size) {
+        return (int) ((long) size * partition / _partitions);
+    }
+}
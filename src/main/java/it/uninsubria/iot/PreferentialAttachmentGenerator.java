@@ -0,0 +1,55 @@
+package it.uninsubria.iot;
+
+import it.uninsubria.iot.entities.Service;
+import it.uninsubria.iot.utils.CustomRandom;
+import java.util.List;
+
+/**
+ * Graph generator following the preferential attachment model of Barabási
+ * and Albert. The providers join the graph one at a time and every new
+ * provider trusts some of the providers already in the graph, picked with
+ * probability proportional to their degree (incoming plus outgoing edges,
+ * at least one), so the in degrees follow a power law. The edges are spread
+ * evenly among the joining providers.
+ * <br/>
+ * The picks are done in constant time by drawing a uniform element from the
+ * list of the endpoints of all the edges so far, so the whole generation
+ * takes O(n + m).
+ *
+ * @author Lorenzo Bossi
+ */
+public class PreferentialAttachmentGenerator extends AbstractGraphGenerator {
+
+    public PreferentialAttachmentGenerator(CustomRandom rnd, List<Service> serviceList) {
+        super(rnd, serviceList);
+    }
+
+    @Override
+    RewiringGraph createSkeleton(int providersNumber, int connectionsNumber) {
+        CustomRandom rnd = getRandom();
+        RewiringGraph graph = new RewiringGraph(providersNumber, connectionsNumber);
+        if (connectionsNumber <= 0) {
+            return graph;
+        }
+        // every provider appears once per edge endpoint, at least once
+        int[] pool = new int[providersNumber + 2 * connectionsNumber];
+        int size = 0;
+        pool[size++] = 0;
+        for (int v = 1; v < providersNumber; v++) {
+            // the edges left are spread on the providers still to join
+            int edges = (connectionsNumber - graph.getEdgeCount()) / (providersNumber - v);
+            int candidates = size;
+            for (int i = 0; i < edges; i++) {
+                // only the providers already in the graph, not the edges
+                // of the current one
+                int target = pool[rnd.nextInt(candidates)];
+                graph.addEdge(v, target);
+                pool[size++] = target;
+            }
+            for (int i = 0; i < Math.max(1, edges); i++) {
+                pool[size++] = v;
+            }
+        }
+        return graph;
+    }
+}
@@ -0,0 +1,64 @@
+package it.uninsubria.iot;
+
+import java.util.Arrays;
+
+/**
+ * Canonical form of a working unit query, used as key of the result cache:
+ * the ids of the services are sorted, so the iteration order of the working
+ * plan does not matter, and the minimum similarity is quantized to
+ * {@link #SIMILARITY_QUANTUM}.
+ *
+ * @author Lorenzo Bossi
+ */
+final class QueryKey {
+
+    /**
+     * Minimum similarities closer than this value share the same key.
+     */
+    static final double SIMILARITY_QUANTUM = 1e-9;
+
+    private final int _customer;
+    private final int[] _services;
+    private final int _depth;
+    private final long _minSimilarity;
+    private final int _hash;
+
+    /**
+     *
+     * @param customer the id of the customer.
+     * @param services the ids of the services of the working plan, the array
+     * is sorted in place.
+     * @param depth how far search.
+     * @param minSimilarity the minimum similarity.
+     */
+    QueryKey(int customer, int[] services, int depth, double minSimilarity) {
+        Arrays.sort(services);
+        _customer = customer;
+        _services = services;
+        _depth = depth;
+        _minSimilarity = Math.round(minSimilarity / SIMILARITY_QUANTUM);
+        int h = Arrays.hashCode(services);
+        h = 31 * h + customer;
+        h = 31 * h + depth;
+        h = 31 * h + Long.hashCode(_minSimilarity);
+        _hash = h;
+    }
+
+    @Override
+    public int hashCode() {
+        return _hash;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (!(obj instanceof QueryKey)) {
+            return false;
+        }
+        QueryKey o = (QueryKey) obj;
+        return _hash == o._hash && _customer == o._customer && _depth == o._depth
+                && _minSimilarity == o._minSimilarity && Arrays.equals(_services, o._services);
+    }
+}
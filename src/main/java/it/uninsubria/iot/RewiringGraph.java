@@ -0,0 +1,122 @@
+package it.uninsubria.iot;
+
+import java.util.Arrays;
+
+/**
+ * The skeleton of the graph built by {@link GraphGenerator}: a directed
+ * multigraph on the vertices [0, n) whose edges are stored in primitive
+ * arrays. Every vertex keeps the list of its incoming edges and every edge
+ * its position in that list, so a random incoming edge is picked in O(1) and
+ * an edge is moved to other endpoints in O(1) by swapping it with the last
+ * edge of the list. Moving an edge keeps its id, so the rewiring allocates
+ * nothing.
+ *
+ * @author Lorenzo Bossi
+ */
+class RewiringGraph {
+
+    private final int[] _sources;
+    private final int[] _targets;
+    private final int[] _inPosition;
+    private final int[][] _inEdges;
+    private final int[] _inDegree;
+    private int _edges;
+
+    /**
+     * Creates a graph without edges.
+     *
+     * @param vertices the number of vertices.
+     * @param capacity the maximum number of edges.
+     */
+    RewiringGraph(int vertices, int capacity) {
+        _sources = new int[capacity];
+        _targets = new int[capacity];
+        _inPosition = new int[capacity];
+        _inEdges = new int[vertices][];
+        _inDegree = new int[vertices];
+        int initial = Math.max(4, vertices == 0 ? 0 : 2 * capacity / vertices);
+        for (int v = 0; v < vertices; v++) {
+            _inEdges[v] = new int[initial];
+        }
+        _edges = 0;
+    }
+
+    int getVertexCount() {
+        return _inDegree.length;
+    }
+
+    int getEdgeCount() {
+        return _edges;
+    }
+
+    /**
+     * Adds an edge.
+     *
+     * @param source the source vertex.
+     * @param target the target vertex.
+     * @return the id of the new edge.
+     * @throws IllegalStateException if the graph is full.
+     */
+    int addEdge(int source, int target) {
+        if (_edges == _sources.length) {
+            throw new IllegalStateException("The graph cannot contain more than " + _sources.length + " edges");
+        }
+        int edge = _edges++;
+        _sources[edge] = source;
+        link(edge, target);
+        return edge;
+    }
+
+    /**
+     * Moves an edge to other endpoints. The edge keeps its id, while the
+     * position of the last incoming edge of the old target changes.
+     *
+     * @param edge the edge id.
+     * @param source the new source vertex.
+     * @param target the new target vertex.
+     */
+    void moveEdge(int edge, int source, int target) {
+        int old = _targets[edge];
+        int pos = _inPosition[edge];
+        int last = _inEdges[old][--_inDegree[old]];
+        _inEdges[old][pos] = last;
+        _inPosition[last] = pos;
+        _sources[edge] = source;
+        link(edge, target);
+    }
+
+    private void link(int edge, int target) {
+        int[] in = _inEdges[target];
+        if (_inDegree[target] == in.length) {
+            in = Arrays.copyOf(in, in.length * 2);
+            _inEdges[target] = in;
+        }
+        _targets[edge] = target;
+        _inPosition[edge] = _inDegree[target];
+        in[_inDegree[target]++] = edge;
+    }
+
+    int getSource(int edge) {
+        return _sources[edge];
+    }
+
+    int getTarget(int edge) {
+        return _targets[edge];
+    }
+
+    int inDegree(int vertex) {
+        return _inDegree[vertex];
+    }
+
+    /**
+     * Returns an incoming edge of the vertex. The order of the incoming edges
+     * changes when an edge is moved.
+     *
+     * @param vertex the vertex.
+     * @param i the index of the edge in [0, inDegree(vertex)).
+     * @return the edge id.
+     */
+    int getInEdge(int vertex, int i) {
+        return _inEdges[vertex][i];
+    }
+}
@@ -1,30 +1,72 @@
 package it.uninsubria.iot;
 
-import edu.uci.ics.jung.algorithms.shortestpath.DijkstraShortestPath;
 import edu.uci.ics.jung.graph.DirectedSparseMultigraph;
 import it.uninsubria.iot.entities.Provider;
 import it.uninsubria.iot.entities.Service;
 import it.uninsubria.iot.entities.Trust;
 import it.uninsubria.iot.entities.WorkingUnit;
+import it.uninsubria.iot.graph.CompactTrustGraph;
+import it.uninsubria.iot.graph.DijkstraEngine;
+import it.uninsubria.iot.graph.LandmarkIndex;
+import it.uninsubria.iot.graph.Neighborhood;
+import it.uninsubria.iot.graph.ReputationTable;
+import it.uninsubria.iot.graph.SearchScratch;
+import it.uninsubria.iot.graph.ServiceGraph;
+import it.uninsubria.iot.graph.ShortestPathTree;
+import it.uninsubria.iot.search.BranchAndBoundSolver;
+import it.uninsubria.iot.search.ImprovementListener;
+import it.uninsubria.iot.search.Incumbents;
+import it.uninsubria.iot.search.ReputationFunction;
+import it.uninsubria.iot.search.ReputationMatrix;
+import it.uninsubria.iot.search.SearchBudget;
+import it.uninsubria.iot.search.SearchResult;
+import it.uninsubria.iot.search.SearchSpace;
+import it.uninsubria.iot.search.WorkingUnitSolver;
 import it.uninsubria.iot.utils.Average;
+import it.uninsubria.iot.utils.Cache;
+import it.uninsubria.iot.utils.CacheStatistics;
+import it.uninsubria.iot.utils.LruCache;
 import it.uninsubria.iot.utils.Pair;
 import it.uninsubria.iot.utils.ProvidersCollector;
-import java.util.Collection;
-import java.util.HashMap;
-import java.util.HashSet;
+import it.uninsubria.iot.utils.WorkingUnitCursor;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 /**
- * Calculates the transitive closure of trust.
+ * Calculates the transitive closure of trust. This class is not thread safe,
+ * use {@link ConcurrentTransitiveTrust} to share the same graph among threads.
  *
  * @author Lorenzo Bossi
  */
-public class TransitiveTrust {
+public class TransitiveTrust implements ReputationFunction {
 
-    private final DirectedSparseMultigraph<Provider, Trust> _graph;
-    private final Map<Service, DijkstraShortestPath<Provider, Trust>> shortestPath;
+    /**
+     * The default minimum size of a frontier to expand it in parallel while
+     * collecting the neighborhood of a customer.
+     */
+    public static final int DEFAULT_PARALLEL_FRONTIER = 4096;
+
+    private final CompactTrustGraph _graph;
+    /**
+     * The engines and the landmark indexes are built lazily. They are stored
+     * in atomic arrays, so that {@link ConcurrentTransitiveTrust} can build
+     * them from many threads without a store of its own.
+     */
+    private final AtomicReferenceArray<DijkstraEngine> _engines;
+    private final Cache<Long, ShortestPathTree> _trees;
+    private SearchScratch _scratch;
+    private int _parallelFrontier = DEFAULT_PARALLEL_FRONTIER;
+    private volatile Cache<QueryKey, List<Pair<WorkingUnit, Double>>> _results;
+    private int _landmarkCount = 0;
+    private volatile AtomicReferenceArray<LandmarkIndex> _landmarks;
+    private volatile ReputationTable _table;
+    private double _minEdgeSimilarity = 0;
+    private boolean _coalesceEdges = false;
 
     /**
      *
@@ -32,15 +74,294 @@ public class TransitiveTrust {
      * @param services the allowed list of services.
      */
     public TransitiveTrust(DirectedSparseMultigraph<Provider, Trust> graph, List<Service> services) {
+        this(new CompactTrustGraph(graph, services));
+    }
+
+    /**
+     * Uses a LRU cache of shortest path trees limited to a quarter of the
+     * maximum heap size.
+     *
+     * @param graph the snapshot of the graph to use.
+     */
+    public TransitiveTrust(CompactTrustGraph graph) {
+        this(graph, new LruCache<>(Runtime.getRuntime().maxMemory() / 4, ShortestPathTree::estimateBytes));
+    }
+
+    /**
+     *
+     * @param graph the snapshot of the graph to use.
+     * @param treeCache the cache for the shortest path trees. The keys
+     * identify a (service, source) pair and must be considered opaque.
+     */
+    public TransitiveTrust(CompactTrustGraph graph, Cache<Long, ShortestPathTree> treeCache) {
         _graph = graph;
-        shortestPath = new HashMap<>();
-        for (Service service : services) {
-            //Since results are cached and the weight depends on the target service, we
-            //need a class for each Service we are looking for.
-            shortestPath.put(service, new DijkstraShortestPath<>(graph, new Weight(service), true));
+        //the weight depends on the target service, the engines are created
+        //the first time a service is queried.
+        _engines = new AtomicReferenceArray<>(graph.getServiceCount());
+        _trees = treeCache;
+    }
+
+    /**
+     * Sets the minimum size of a frontier to expand it in parallel while
+     * collecting the neighborhood of a customer.
+     *
+     * @param threshold the number of providers, Integer.MAX_VALUE to always
+     * work sequentially.
+     */
+    public void setParallelFrontierThreshold(int threshold) {
+        _parallelFrontier = threshold;
+    }
+
+    /**
+     * Sets the minimum similarity between the service of an edge and the
+     * queried service for the edge to be followed by the reputation searches.
+     * Every service gets its own adjacency with only the edges above the
+     * threshold, so the searches of specialized services scan a fraction of
+     * the graph; reputations carried only by the dropped edges are lost. The
+     * engines, the landmarks, the reputation table and the cached trees and
+     * results built with the previous threshold are dropped. It must be set
+     * before the object is shared among threads.
+     *
+     * @param minSimilarity the threshold in [0,1], 0 (the default) to follow
+     * all the edges like the JUNG implementation.
+     * @throws IllegalArgumentException if minSimilarity is not in [0,1].
+     */
+    public void setMinEdgeSimilarity(double minSimilarity) {
+        if (!(minSimilarity >= 0 && minSimilarity <= 1)) {
+            throw new IllegalArgumentException("minSimilarity must be in [0,1]");
+        }
+        _minEdgeSimilarity = minSimilarity;
+        clearEngines();
+    }
+
+    public double getMinEdgeSimilarity() {
+        return _minEdgeSimilarity;
+    }
+
+    /**
+     * Sets whether the parallel edges between two providers are coalesced in
+     * the adjacency of every service, keeping only the one with the lowest
+     * weight, see {@link ServiceGraph#ServiceGraph(CompactTrustGraph, int, double, boolean)}.
+     * The searches then relax far fewer edges on graphs with many parallel
+     * edges; the number of removed edges is reported by the service graphs.
+     * Like {@link #setMinEdgeSimilarity(double)}, everything built with the
+     * previous setting is dropped.
+     *
+     * @param coalesce true to coalesce the parallel edges.
+     */
+    public void setCoalesceParallelEdges(boolean coalesce) {
+        _coalesceEdges = coalesce;
+        clearEngines();
+    }
+
+    public boolean isCoalesceParallelEdges() {
+        return _coalesceEdges;
+    }
+
+    /**
+     * Drops the engines, the landmarks, the reputation table and the cached
+     * trees and results, after a change of the service graphs.
+     */
+    protected void clearEngines() {
+        for (int s = 0; s < _engines.length(); s++) {
+            _engines.set(s, null);
+        }
+        if (_landmarks != null) {
+            _landmarks = new AtomicReferenceArray<>(_graph.getServiceCount());
+        }
+        _table = null;
+        invalidate();
+    }
+
+    /**
+     * Returns the weighted view of the graph the reputations of a service are
+     * computed on, building it if needed.
+     *
+     * @param service the service.
+     * @return the service graph.
+     * @throws IllegalArgumentException if the service is unknown.
+     */
+    public ServiceGraph getServiceGraph(Service service) {
+        return getEngine(serviceId(service)).getServiceGraph();
+    }
+
+    /**
+     * Returns the counters of the shortest path tree cache.
+     *
+     * @return the cache statistics.
+     */
+    public CacheStatistics getTreeCacheStatistics() {
+        return _trees.getStatistics();
+    }
+
+    /**
+     * Enables the goal directed mode of {@link #getReputation}: a
+     * {@link LandmarkIndex} is built for each service the first time it is
+     * queried, and single reputations are computed with an A* search which
+     * settles only the providers around the shortest path. The result is the
+     * same of the default mode. The mode must be set before the object is
+     * shared among threads.
+     *
+     * @param landmarks the number of landmarks per service, 0 to disable the
+     * mode.
+     * @throws IllegalArgumentException if landmarks is negative.
+     */
+    public void setGoalDirected(int landmarks) {
+        if (landmarks < 0) {
+            throw new IllegalArgumentException("The number of landmarks cannot be negative");
+        }
+        _landmarkCount = landmarks;
+        _landmarks = new AtomicReferenceArray<>(_graph.getServiceCount());
+    }
+
+    /**
+     * Returns the landmark index of a service, building it if needed. The
+     * index reports its build time and size.
+     *
+     * @param service the service.
+     * @return the index or null if the goal directed mode is disabled.
+     * @throws IllegalArgumentException if the service is unknown.
+     */
+    public LandmarkIndex getLandmarkIndex(Service service) {
+        int s = serviceId(service);
+        return _landmarkCount == 0 ? null : getLandmarks(s);
+    }
+
+    /**
+     * Returns the landmark index of a service, building it the first time.
+     * Threads asking for a missing index may all build it, only the first
+     * one is kept.
+     *
+     * @param service the service id.
+     * @return the index.
+     */
+    protected LandmarkIndex getLandmarks(int service) {
+        AtomicReferenceArray<LandmarkIndex> landmarks = _landmarks;
+        LandmarkIndex index = landmarks.get(service);
+        if (index == null) {
+            landmarks.compareAndSet(service, null, createLandmarks(service));
+            index = landmarks.get(service);
+        }
+        return index;
+    }
+
+    /**
+     * Builds the landmark index of a service.
+     *
+     * @param service the service id.
+     * @return a new index.
+     */
+    protected LandmarkIndex createLandmarks(int service) {
+        return new LandmarkIndex(getEngine(service).getServiceGraph(), _landmarkCount);
+    }
+
+    /**
+     * Computes the reputations among all the providers for all the services
+     * and answers every following reputation query with a lookup in the
+     * table, see {@link ReputationTable}. It should be used only on graphs
+     * small enough for the table to fit in memory.
+     *
+     * @param bits the size of a stored reputation: 32, 16 or 8. With less
+     * than 32 bits the reputations are quantized.
+     * @param pool the pool the table is built in.
+     * @return the table, which reports its build time and size.
+     * @throws IllegalArgumentException if bits is not 32, 16 or 8 or the
+     * graph has too many providers.
+     */
+    public ReputationTable precomputeReputations(int bits, ForkJoinPool pool) {
+        ReputationTable table = new ReputationTable(_graph, bits, _minEdgeSimilarity, _coalesceEdges, pool);
+        setReputationTable(table);
+        return table;
+    }
+
+    /**
+     * Sets the table reputation queries are answered with. The cached query
+     * results are dropped, since a quantized table may give different
+     * working units.
+     *
+     * @param table the table, null to go back to the shortest path searches.
+     * @throws IllegalArgumentException if the table was built for another
+     * graph.
+     */
+    public void setReputationTable(ReputationTable table) {
+        if (table != null && table.getGraph() != _graph) {
+            throw new IllegalArgumentException("The table was built for another graph");
+        }
+        _table = table;
+        Cache<QueryKey, List<Pair<WorkingUnit, Double>>> results = _results;
+        if (results != null) {
+            results.clear();
         }
     }
 
+    /**
+     * Returns the table reputation queries are answered with.
+     *
+     * @return the table or null if the reputations are not precomputed.
+     */
+    public ReputationTable getReputationTable() {
+        return _table;
+    }
+
+    /**
+     * Enables the cache of the results of
+     * {@link #getWorkingUnit(Provider, Set, int, double)}. Queries are
+     * identified by customer, set of services, depth and minimum similarity,
+     * so repeated queries are answered without any search. The cached
+     * working units are shared among the callers and must not be modified.
+     *
+     * @param maxEntries the maximum number of results kept, 0 disables the
+     * cache.
+     * @throws IllegalArgumentException if maxEntries is negative.
+     */
+    public void setResultCacheSize(int maxEntries) {
+        if (maxEntries < 0) {
+            throw new IllegalArgumentException("The cache size cannot be negative");
+        }
+        _results = maxEntries == 0 ? null : createResultCache(maxEntries);
+    }
+
+    Cache<QueryKey, List<Pair<WorkingUnit, Double>>> getResultCache() {
+        return _results;
+    }
+
+    /**
+     * Creates the cache of the query results.
+     *
+     * @param maxEntries the maximum number of entries.
+     * @return a LRU cache.
+     */
+    protected <K, V> Cache<K, V> createResultCache(int maxEntries) {
+        return new LruCache<>(maxEntries);
+    }
+
+    /**
+     * Returns the counters of the result cache.
+     *
+     * @return the cache statistics or null if the cache is disabled.
+     */
+    public CacheStatistics getResultCacheStatistics() {
+        Cache<QueryKey, List<Pair<WorkingUnit, Double>>> results = _results;
+        return results == null ? null : results.getStatistics();
+    }
+
+    /**
+     * Drops the cached query results and shortest path trees. It must be
+     * called when the services offered by the providers change: the
+     * candidates of a query are read from the providers, so the cached
+     * results would not reflect the change. The trust edges and the set of
+     * providers are instead read once from the snapshot given to the
+     * constructor and this method does not refresh them; after a change of
+     * the graph a new TransitiveTrust must be built on a new snapshot.
+     */
+    public void invalidate() {
+        Cache<QueryKey, List<Pair<WorkingUnit, Double>>> results = _results;
+        if (results != null) {
+            results.clear();
+        }
+        _trees.clear();
+    }
+
     /**
      * Get the reputation (transitive closure of trust).
      *
@@ -48,22 +369,170 @@ public class TransitiveTrust {
      * @param to the node to compute the reputation.
      * @param service the service we are considering.
      * @return the reputation [-1,1];
+     * @throws IllegalArgumentException if the providers or the service are
+     * not in the graph.
      */
+    @Override
     public double getReputation(Provider from, Provider to, Service service) {
-        List<Trust> path = shortestPath.get(service).getPath(from, to);
-        if (path == null || path.isEmpty()) {
+        int s = serviceId(service);
+        int source = providerId(from);
+        int target = providerId(to);
+        if (source == target) {
             return 0;
         }
-        double reputation = Double.MAX_VALUE;
+        ReputationTable table = _table;
+        if (table != null) {
+            return table.getReputation(s, source, target);
+        }
+        if (_landmarkCount > 0) {
+            ShortestPathTree tree = _trees.get(((long) s << 32) | source);
+            if (tree != null && tree.isSettled(target)) {
+                return tree.getReputation(target);
+            }
+            double reputation = getLandmarks(s).getReputation(source, target, getScratch());
+            if (!Double.isNaN(reputation)) {
+                return reputation;
+            }
+        }
+        return getTree(s, source, new int[]{target}).getReputation(target);
+    }
+
+    /**
+     * Get the reputation of many providers from the point of view of the
+     * same observer. A single shortest path search is done, and it stops as
+     * soon as all the targets are reached.
+     *
+     * @param from the starting node (the observer).
+     * @param to the nodes to compute the reputation.
+     * @param service the service we are considering.
+     * @return the reputations [-1,1] in the same order of the targets.
+     * @throws IllegalArgumentException if the providers or the service are
+     * not in the graph.
+     */
+    @Override
+    public double[] getReputations(Provider from, List<Provider> to, Service service) {
+        int s = serviceId(service);
+        int source = providerId(from);
+        int[] targets = new int[to.size()];
+        for (int i = 0; i < targets.length; i++) {
+            targets[i] = providerId(to.get(i));
+        }
+        ReputationTable table = _table;
+        if (table != null) {
+            double[] reputations = new double[targets.length];
+            for (int i = 0; i < targets.length; i++) {
+                reputations[i] = table.getReputation(s, source, targets[i]);
+            }
+            return reputations;
+        }
+        ShortestPathTree tree = getTree(s, source, targets);
+        double[] reputations = new double[targets.length];
+        for (int i = 0; i < targets.length; i++) {
+            reputations[i] = tree.getReputation(targets[i]);
+        }
+        return reputations;
+    }
+
+    /**
+     * Returns a tree where all the targets are settled. A cached tree is used
+     * when possible. Otherwise the first search stops at the targets, while
+     * a search replacing a partial tree explores the whole graph, so the
+     * same source is searched again at most once.
+     */
+    private ShortestPathTree getTree(int service, int source, int[] targets) {
+        Long key = ((long) service << 32) | source;
+        ShortestPathTree tree = _trees.get(key);
+        if (tree != null && allSettled(tree, targets)) {
+            return tree;
+        }
+        //a partial tree cannot be resumed: the order of the ties in its heap
+        //is lost, and with it the bottleneck of the equally short paths
+        tree = getEngine(service).search(source, tree == null ? targets : null, getScratch());
+        _trees.put(key, tree);
+        return tree;
+    }
+
+    private static boolean allSettled(ShortestPathTree tree, int[] targets) {
+        for (int t : targets) {
+            if (!tree.isSettled(t)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the engine of the service, creating it the first time. Threads
+     * asking for a missing engine may all create it, only the first one is
+     * kept.
+     *
+     * @param service the service id.
+     * @return the engine.
+     */
+    protected DijkstraEngine getEngine(int service) {
+        DijkstraEngine engine = _engines.get(service);
+        if (engine == null) {
+            _engines.compareAndSet(service, null, createEngine(service));
+            engine = _engines.get(service);
+        }
+        return engine;
+    }
+
+    /**
+     * Creates the shortest path engine for a service.
+     *
+     * @param service the service id.
+     * @return a new engine.
+     */
+    protected DijkstraEngine createEngine(int service) {
+        return new DijkstraEngine(new ServiceGraph(_graph, service, _minEdgeSimilarity, _coalesceEdges));
+    }
 
-        for (Trust edge : path) {
-            reputation = Math.min(reputation, service.similarity(edge.getService()) * edge.getLevel());
+    /**
+     * Returns the working memory for the searches of the calling thread.
+     *
+     * @return the scratch.
+     */
+    protected SearchScratch getScratch() {
+        if (_scratch == null) {
+            _scratch = new SearchScratch(_graph.getProviderCount());
         }
-        return reputation;
+        return _scratch;
     }
 
     /**
-     * Select the best working unit to fulfill the given working set.
+     * Returns the graph snapshot.
+     *
+     * @return the graph.
+     */
+    public CompactTrustGraph getGraph() {
+        return _graph;
+    }
+
+    int serviceId(Service service) {
+        int id = _graph.indexOf(service);
+        if (id < 0) {
+            throw new IllegalArgumentException("Unknown service " + service);
+        }
+        return id;
+    }
+
+    Neighborhood createNeighborhood(int customer, int depth) {
+        return new Neighborhood(_graph, customer, depth, _parallelFrontier);
+    }
+
+    int providerId(Provider provider) {
+        int id = _graph.indexOf(provider);
+        if (id < 0) {
+            throw new IllegalArgumentException("The provider " + provider + " is not in the graph");
+        }
+        return id;
+    }
+
+    /**
+     * Select the best working unit to fulfill the given working set. The
+     * search is done with a {@link BranchAndBoundSolver}, and the result is
+     * cached if the result cache is enabled.
      *
      * @param customer the node that starts the search.
      * @param workingPlan the required services.
@@ -75,44 +544,197 @@ public class TransitiveTrust {
      * minSimilarity is not in (0,1].
      */
     public Pair<WorkingUnit, Double> getWorkingUnit(Provider customer, Set<Service> workingPlan, int depth, double minSimilarity) {
-        if (depth <= 1) {
-            throw new IllegalArgumentException("depth must be greather than 1");
+        Cache<QueryKey, List<Pair<WorkingUnit, Double>>> results = _results;
+        QueryKey key = results == null ? null : queryKey(customer, workingPlan, depth, minSimilarity);
+        if (key == null) {
+            return getWorkingUnit(customer, workingPlan, depth, minSimilarity, new BranchAndBoundSolver());
         }
-        if (minSimilarity > 1 || minSimilarity <= 0) {
-            throw new IllegalArgumentException("minSimilarity must be in (0,1]");
+        List<Pair<WorkingUnit, Double>> best = results.get(key);
+        if (best == null) {
+            best = getTopWorkingUnits(customer, workingPlan, depth, minSimilarity, 1, new BranchAndBoundSolver());
+            results.put(key, best);
         }
-        ProvidersCollector collector = new ProvidersCollector(workingPlan, minSimilarity);
-        Set<Provider> visited = new HashSet<>();
-        collectProviders(customer, collector, visited, depth);
-
-        WorkingUnit bestWorkingUnit = null;
-        double bestReputation = Double.MIN_VALUE;
-        for (WorkingUnit wu : collector) {
-            double reputation = calculateOverallReputation(wu);
-            if (reputation > bestReputation) {
-                bestReputation = reputation;
-                bestWorkingUnit = wu;
+        return best.isEmpty() ? null : best.get(0);
+    }
+
+    /**
+     * Builds the canonical form of a query.
+     *
+     * @return the key or null if the plan contains a service unknown to the
+     * graph, whose results are not cached.
+     * @throws IllegalArgumentException if the customer is not in the graph.
+     */
+    QueryKey queryKey(Provider customer, Set<Service> workingPlan, int depth, double minSimilarity) {
+        int[] services = new int[workingPlan.size()];
+        int i = 0;
+        for (Service service : workingPlan) {
+            services[i] = _graph.indexOf(service);
+            if (services[i++] < 0) {
+                return null;
             }
         }
+        return new QueryKey(providerId(customer), services, depth, minSimilarity);
+    }
+
+    /**
+     * Select the best working unit to fulfill the given working set. Working
+     * units made of a single provider have no overall reputation and are never
+     * selected.
+     *
+     * @param customer the node that starts the search.
+     * @param workingPlan the required services.
+     * @param depth how far search.
+     * @param minSimilarity the minimum similarity required to select a service.
+     * @param solver the search strategy.
+     * @return a pair with the best working unit found and the overall unit
+     * reputation or null if no working unit is be found.
+     * @throws IllegalArgumentException if depth is less or equal than 1 or
+     * minSimilarity is not in (0,1].
+     */
+    public Pair<WorkingUnit, Double> getWorkingUnit(Provider customer, Set<Service> workingPlan, int depth, double minSimilarity, WorkingUnitSolver solver) {
+        List<Pair<WorkingUnit, Double>> best = getTopWorkingUnits(customer, workingPlan, depth, minSimilarity, 1, solver);
+        return best.isEmpty() ? null : best.get(0);
+    }
+
+    /**
+     * Select the k best working units to fulfill the given working set, all
+     * computed in a single search. The search is done with a
+     * {@link BranchAndBoundSolver}.
+     *
+     * @param customer the node that starts the search.
+     * @param workingPlan the required services.
+     * @param depth how far search.
+     * @param minSimilarity the minimum similarity required to select a service.
+     * @param k the maximum number of working units to return.
+     * @return at most k pairs with a working unit and its overall reputation,
+     * best first.
+     * @throws IllegalArgumentException if depth is less or equal than 1,
+     * minSimilarity is not in (0,1] or k is less than 1.
+     */
+    public List<Pair<WorkingUnit, Double>> getTopWorkingUnits(Provider customer, Set<Service> workingPlan, int depth, double minSimilarity, int k) {
+        return getTopWorkingUnits(customer, workingPlan, depth, minSimilarity, k, new BranchAndBoundSolver());
+    }
+
+    /**
+     * Select the k best working units to fulfill the given working set, all
+     * computed in a single search.
+     *
+     * @param customer the node that starts the search.
+     * @param workingPlan the required services.
+     * @param depth how far search.
+     * @param minSimilarity the minimum similarity required to select a service.
+     * @param k the maximum number of working units to return.
+     * @param solver the search strategy.
+     * @return at most k pairs with a working unit and its overall reputation,
+     * best first.
+     * @throws IllegalArgumentException if depth is less or equal than 1,
+     * minSimilarity is not in (0,1] or k is less than 1.
+     */
+    public List<Pair<WorkingUnit, Double>> getTopWorkingUnits(Provider customer, Set<Service> workingPlan, int depth, double minSimilarity, int k, WorkingUnitSolver solver) {
+        return searchWorkingUnits(customer, workingPlan, depth, minSimilarity, k, solver, null, null).getWorkingUnits();
+    }
+
+    /**
+     * Looks for the best working unit within a time budget. The search is
+     * done with a {@link BranchAndBoundSolver}.
+     *
+     * @param customer the node that starts the search.
+     * @param workingPlan the required services.
+     * @param depth how far search.
+     * @param minSimilarity the minimum similarity required to select a service.
+     * @param budget the deadline and cancellation handle of the search.
+     * @param listener notified of every improvement of the best working unit,
+     * may be null.
+     * @return the best working unit found before the budget ended.
+     * @throws IllegalArgumentException if depth is less or equal than 1 or
+     * minSimilarity is not in (0,1].
+     */
+    public SearchResult searchWorkingUnit(Provider customer, Set<Service> workingPlan, int depth, double minSimilarity, SearchBudget budget, ImprovementListener listener) {
+        return searchWorkingUnits(customer, workingPlan, depth, minSimilarity, 1, new BranchAndBoundSolver(), budget, listener);
+    }
 
-        if (bestWorkingUnit == null) {
-            return null;
+    /**
+     * Looks for the k best working units within a time budget. When the
+     * budget ends the solver stops and the best working units found so far
+     * are returned; the result tells whether they are proven to be the best.
+     * The budget is checked before every shortest path search of the
+     * reputations of the candidates and while the working units are
+     * searched, not while the providers are collected. If it ends before the
+     * reputations are known, no working unit is returned.
+     *
+     * @param customer the node that starts the search.
+     * @param workingPlan the required services.
+     * @param depth how far search.
+     * @param minSimilarity the minimum similarity required to select a service.
+     * @param k the maximum number of working units to return.
+     * @param solver the search strategy.
+     * @param budget the deadline and cancellation handle of the search, null
+     * for no limits.
+     * @param listener notified of every improvement of the best working unit,
+     * may be null.
+     * @return the working units found, best first.
+     * @throws IllegalArgumentException if depth is less or equal than 1,
+     * minSimilarity is not in (0,1] or k is less than 1.
+     */
+    public SearchResult searchWorkingUnits(Provider customer, Set<Service> workingPlan, int depth, double minSimilarity, int k, WorkingUnitSolver solver, SearchBudget budget, ImprovementListener listener) {
+        long start = System.nanoTime();
+        return search(collectProviders(customer, workingPlan, depth, minSimilarity), k, solver, budget, listener, start);
+    }
+
+    /**
+     * Searches the working units of the collected providers.
+     *
+     * @param start the System.nanoTime() the query started at.
+     */
+    SearchResult search(ProvidersCollector collector, int k, WorkingUnitSolver solver, SearchBudget budget, ImprovementListener listener, long start) {
+        Incumbents incumbents = new Incumbents(k, budget);
+        SearchSpace space = new SearchSpace(collector);
+        double upperBound = Double.NaN;
+        if (!space.isEmpty()) {
+            ReputationMatrix reputations = new ReputationMatrix(space, this, budget);
+            if (reputations.isComplete()) {
+                upperBound = reputations.getUpperBound();
+                incumbents.setImprovementListener(space, listener);
+                solver.search(reputations, incumbents);
+            } else {
+                incumbents.markStopped();
+            }
         }
-        return new Pair<>(bestWorkingUnit, bestReputation);
+        return new SearchResult(incumbents.getWorkingUnits(space), incumbents.isComplete(), System.nanoTime() - start, incumbents.getEvaluations(), upperBound);
     }
 
-    private void collectProviders(Provider start, ProvidersCollector collector, Set<Provider> visited, int depth) {
-        if (!visited.add(start)) {
-            return;
+    /**
+     * Collects the providers which are near enough to the customer and provide
+     * something similar enough to the services of the working plan.
+     *
+     * @param customer the node that starts the search.
+     * @param workingPlan the required services.
+     * @param depth how far search.
+     * @param minSimilarity the minimum similarity required to select a service.
+     * @return the collected providers.
+     * @throws IllegalArgumentException if depth is less or equal than 1 or
+     * minSimilarity is not in (0,1].
+     */
+    public ProvidersCollector collectProviders(Provider customer, Set<Service> workingPlan, int depth, double minSimilarity) {
+        if (depth <= 1) {
+            throw new IllegalArgumentException("depth must be greather than 1");
         }
-        collector.addProvider(start);
-        if (depth == 0) {
-            return;
+        if (minSimilarity > 1 || minSimilarity <= 0) {
+            throw new IllegalArgumentException("minSimilarity must be in (0,1]");
         }
-        Collection<Provider> successors = _graph.getSuccessors(start);
-        for (Provider next : successors) {
-            collectProviders(next, collector, visited, depth - 1);
+        return collectProviders(createNeighborhood(providerId(customer), depth), workingPlan, minSimilarity);
+    }
+
+    /**
+     * Collects the providers of a neighborhood which provide something
+     * similar enough to the services of the working plan.
+     */
+    ProvidersCollector collectProviders(Neighborhood neighborhood, Set<Service> workingPlan, double minSimilarity) {
+        ProvidersCollector collector = new ProvidersCollector(workingPlan, minSimilarity);
+        for (int i = 0; i < neighborhood.size(); i++) {
+            collector.addProvider(_graph.getProvider(neighborhood.getProvider(i)));
         }
+        return collector;
     }
 
     /**
@@ -131,50 +753,55 @@ public class TransitiveTrust {
             throw new IllegalArgumentException("The working unit contains less than two providers");
         }
         for (Provider source : providers) {
+            //one search per service for all the destinations
+            Map<Service, List<Provider>> destinations = new LinkedHashMap<>();
             for (Map.Entry<Provider, List<Service>> sp : workingUnit.getServiceListPerProvider()) {
                 Provider dest = sp.getKey();
                 if (!source.equals(dest)) {
                     for (Service service : sp.getValue()) {
-                        double rep = getReputation(source, dest, service);
-                        avg.add(rep);
+                        destinations.computeIfAbsent(service, k -> new ArrayList<>()).add(dest);
                     }
                 }
             }
+            for (Map.Entry<Service, List<Provider>> sd : destinations.entrySet()) {
+                for (double rep : getReputations(source, sd.getValue(), sd.getKey())) {
+                    avg.add(rep);
+                }
+            }
         }
         return avg.getAvg();
     }
 
-}
-
-/**
- * Converts edges into weights to calculate the shortest path.
- *
- * @author Lorenzo Bossi
- */
-class Weight implements org.apache.commons.collections15.Transformer<Trust, Number> {
-
-    private final Service _currentService;
-
-    /**
-     *
-     * @param service the service we are considering to calculate the weight.
-     */
-    Weight(Service service) {
-        _currentService = service;
-    }
-
     /**
-     * Calculates the weight of an edge. According to the service passed to the
-     * constructor.
+     * Calculates the overall reputation for the current working unit of a
+     * cursor, without building it.
      *
-     * @param edge the edge to weight.
-     * @return the weight > 0;
+     * @param workingUnit the cursor on the working unit.
+     * @return the overall reputation, as the average of the reputation of all
+     * the member.
+     * @throws IllegalArgumentException if the working unit contains less than
+     * two service provider.
      */
-    @Override
-    public Number transform(Trust edge) {
-        //w_s(e)= 1 / [ l(s, s(e)) · (2 + r(e)) ]
-        double den = edge.getService().similarity(_currentService) * (2 + edge.getLevel());
-        return 1 / den;
+    public double calculateOverallReputation(WorkingUnitCursor workingUnit) {
+        int members = workingUnit.getMemberCount();
+        if (members <= 1) {
+            throw new IllegalArgumentException("The working unit contains less than two providers");
+        }
+        //no grouping here: it would allocate for every working unit, and the
+        //trees of the sources are cached after the first ones
+        double sum = 0;
+        for (int i = 0; i < members; i++) {
+            Provider source = workingUnit.getMember(i);
+            for (int j = 0; j < members; j++) {
+                if (i != j) {
+                    Provider dest = workingUnit.getMember(j);
+                    for (int k = 0; k < workingUnit.getSlotCount(j); k++) {
+                        sum += getReputation(source, dest, workingUnit.getService(workingUnit.getSlot(j, k)));
+                    }
+                }
+            }
+        }
+        return sum / ((double) workingUnit.getSlotCount() * (members - 1));
     }
 
 }
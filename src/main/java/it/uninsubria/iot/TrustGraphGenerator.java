@@ -0,0 +1,29 @@
+package it.uninsubria.iot;
+
+import edu.uci.ics.jung.graph.DirectedSparseMultigraph;
+import it.uninsubria.iot.entities.Provider;
+import it.uninsubria.iot.entities.Trust;
+
+/**
+ * A strategy to generate random trust graphs whose degrees follow a power
+ * law. Every provider gets a random set of services, every edge the trust
+ * on a random service of its target, and the providers with the most
+ * outgoing edges become reputation providers; the strategies differ only in
+ * how the edges are placed.
+ *
+ * @author Lorenzo Bossi
+ */
+public interface TrustGraphGenerator {
+
+    /**
+     * Creates a graph.
+     *
+     * @param serviceProvidersNumber the number of service providers.
+     * @param reputationProvidersNumber the number of reputation providers.
+     * @param connectionsNumber the number of edges.
+     * @return the graph.
+     * @throws IllegalArgumentException if there are edges but less than two
+     * providers.
+     */
+    DirectedSparseMultigraph<Provider, Trust> createGraph(int serviceProvidersNumber, int reputationProvidersNumber, int connectionsNumber);
+}
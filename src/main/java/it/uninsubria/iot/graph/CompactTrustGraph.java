@@ -0,0 +1,253 @@
+package it.uninsubria.iot.graph;
+
+import edu.uci.ics.jung.graph.DirectedSparseMultigraph;
+import it.uninsubria.iot.entities.Provider;
+import it.uninsubria.iot.entities.Service;
+import it.uninsubria.iot.entities.Trust;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable compressed sparse row (CSR) snapshot of a trust graph. Providers
+ * and services are mapped to dense int ids, the outgoing edges of the provider
+ * v are stored in the positions [firstEdge(v), endEdge(v)) of primitive arrays
+ * which hold the target provider, the service and the trust level of each
+ * edge. The snapshot does not keep any reference to the original graph.
+ *
+ * @author Lorenzo Bossi
+ */
+public class CompactTrustGraph {
+
+    private final Provider[] _providers;
+    private final Map<Provider, Integer> _providerIds;
+    private final Service[] _services;
+    private final Map<Service, Integer> _serviceIds;
+
+    private final int[] _offsets;
+    private final int[] _targets;
+    private final int[] _edgeServices;
+    private final double[] _levels;
+
+    /**
+     * Builds the snapshot of the graph. The services in the list get the ids
+     * [0, services.size()) in the list order, services used by the graph but
+     * missing from the list are appended after them.
+     *
+     * @param graph the graph to copy.
+     * @param services the list of known services.
+     */
+    public CompactTrustGraph(DirectedSparseMultigraph<Provider, Trust> graph, List<Service> services) {
+        List<Service> allServices = new ArrayList<>(services);
+        _serviceIds = new HashMap<>();
+        for (int i = 0; i < allServices.size(); i++) {
+            _serviceIds.put(allServices.get(i), i);
+        }
+
+        int n = graph.getVertexCount();
+        int m = graph.getEdgeCount();
+        _providers = new Provider[n];
+        _providerIds = new HashMap<>(n * 2);
+        int id = 0;
+        for (Provider p : graph.getVertices()) {
+            _providers[id] = p;
+            _providerIds.put(p, id);
+            id++;
+            for (Service s : p.getServices()) {
+                serviceId(s, allServices);
+            }
+        }
+
+        _offsets = new int[n + 1];
+        _targets = new int[m];
+        _edgeServices = new int[m];
+        _levels = new double[m];
+        int edge = 0;
+        for (int v = 0; v < n; v++) {
+            _offsets[v] = edge;
+            Collection<Trust> outEdges = graph.getOutEdges(_providers[v]);
+            if (outEdges == null) {
+                continue;
+            }
+            for (Trust t : outEdges) {
+                _targets[edge] = _providerIds.get(graph.getDest(t));
+                _edgeServices[edge] = serviceId(t.getService(), allServices);
+                _levels[edge] = t.getLevel();
+                edge++;
+            }
+        }
+        _offsets[n] = edge;
+        _services = allServices.toArray(new Service[allServices.size()]);
+    }
+
+    private int serviceId(Service service, List<Service> allServices) {
+        Integer sid = _serviceIds.get(service);
+        if (sid == null) {
+            sid = allServices.size();
+            allServices.add(service);
+            _serviceIds.put(service, sid);
+        }
+        return sid;
+    }
+
+    public int getProviderCount() {
+        return _providers.length;
+    }
+
+    public int getEdgeCount() {
+        return _targets.length;
+    }
+
+    public int getServiceCount() {
+        return _services.length;
+    }
+
+    /**
+     * Returns the provider associated to the id.
+     *
+     * @param id the provider id in [0, getProviderCount()).
+     * @return the provider.
+     */
+    public Provider getProvider(int id) {
+        return _providers[id];
+    }
+
+    /**
+     * Returns the id of the provider.
+     *
+     * @param provider the provider.
+     * @return the id of the provider or -1 if the provider is not in the
+     * graph.
+     */
+    public int indexOf(Provider provider) {
+        Integer id = _providerIds.get(provider);
+        return id == null ? -1 : id;
+    }
+
+    /**
+     * Returns the service associated to the id.
+     *
+     * @param id the service id in [0, getServiceCount()).
+     * @return the service.
+     */
+    public Service getService(int id) {
+        return _services[id];
+    }
+
+    /**
+     * Returns the id of the service.
+     *
+     * @param service the service.
+     * @return the id of the service or -1 if the service is unknown.
+     */
+    public int indexOf(Service service) {
+        Integer id = _serviceIds.get(service);
+        return id == null ? -1 : id;
+    }
+
+    /**
+     * Returns the first outgoing edge of the provider.
+     *
+     * @param provider the provider id.
+     * @return the id of the first outgoing edge.
+     */
+    public int firstEdge(int provider) {
+        return _offsets[provider];
+    }
+
+    /**
+     * Returns the end (exclusive) of the outgoing edges of the provider.
+     *
+     * @param provider the provider id.
+     * @return the id after the last outgoing edge.
+     */
+    public int endEdge(int provider) {
+        return _offsets[provider + 1];
+    }
+
+    public int outDegree(int provider) {
+        return _offsets[provider + 1] - _offsets[provider];
+    }
+
+    /**
+     * Returns the provider the edge starts from. Since the source is not
+     * stored, it is looked up in the offsets in O(log n).
+     *
+     * @param edge the edge id.
+     * @return the source provider id.
+     */
+    public int getSource(int edge) {
+        int lo = 0;
+        int hi = _providers.length - 1;
+        while (lo < hi) {
+            int mid = (lo + hi + 1) >>> 1;
+            if (_offsets[mid] <= edge) {
+                lo = mid;
+            } else {
+                hi = mid - 1;
+            }
+        }
+        return lo;
+    }
+
+    /**
+     * Returns the provider the edge points to.
+     *
+     * @param edge the edge id.
+     * @return the target provider id.
+     */
+    public int getTarget(int edge) {
+        return _targets[edge];
+    }
+
+    /**
+     * Returns the service the trust of the edge refers to.
+     *
+     * @param edge the edge id.
+     * @return the service id.
+     */
+    public int getEdgeService(int edge) {
+        return _edgeServices[edge];
+    }
+
+    /**
+     * Returns the trust level of the edge.
+     *
+     * @param edge the edge id.
+     * @return the trust level [-1,1].
+     */
+    public double getLevel(int edge) {
+        return _levels[edge];
+    }
+
+    /**
+     * Estimates the memory used by the primitive arrays of the snapshot. The
+     * objects shared with the original graph (providers and services) are not
+     * counted.
+     *
+     * @return the estimated size in bytes.
+     */
+    public long estimateBytes() {
+        long refs = 8L * (_providers.length + _services.length);
+        long maps = 48L * (_providerIds.size() + _serviceIds.size());
+        return refs + maps + 4L * _offsets.length + 8L * _targets.length + 8L * _levels.length;
+    }
+
+    int[] offsets() {
+        return _offsets;
+    }
+
+    int[] targets() {
+        return _targets;
+    }
+
+    int[] edgeServices() {
+        return _edgeServices;
+    }
+
+    double[] levels() {
+        return _levels;
+    }
+}
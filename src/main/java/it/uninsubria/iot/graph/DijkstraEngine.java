@@ -0,0 +1,169 @@
+package it.uninsubria.iot.graph;
+
+import it.uninsubria.iot.utils.IndexedMinHeap;
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Single source shortest path search on a {@link ServiceGraph}. The search
+ * works only on primitive arrays indexed by provider id. The engine itself is
+ * immutable and can be shared among threads, the mutable state of a search is
+ * kept in a {@link SearchScratch} owned by the caller.
+ * <br/>
+ * During the relaxation the engine also propagates the bottleneck of the path
+ * (the minimum trust of its edges), so the reputation of every settled
+ * provider is known without walking the path. By default only the bottlenecks
+ * end up in the trees; the distances and the predecessors are stored only if
+ * the engine is created to keep the paths.
+ *
+ * @author Lorenzo Bossi
+ */
+public class DijkstraEngine {
+
+    private final ServiceGraph _serviceGraph;
+    private final boolean _keepPaths;
+
+    /**
+     * Creates an engine which keeps only the bottlenecks.
+     *
+     * @param serviceGraph the weighted graph.
+     */
+    public DijkstraEngine(ServiceGraph serviceGraph) {
+        this(serviceGraph, false);
+    }
+
+    /**
+     *
+     * @param serviceGraph the weighted graph.
+     * @param keepPaths true to store distances and predecessors in the trees.
+     */
+    public DijkstraEngine(ServiceGraph serviceGraph, boolean keepPaths) {
+        _serviceGraph = serviceGraph;
+        _keepPaths = keepPaths;
+    }
+
+    public ServiceGraph getServiceGraph() {
+        return _serviceGraph;
+    }
+
+    /**
+     * Computes the shortest paths from the source to all the reachable
+     * providers. Like in the JUNG implementation, edges with infinite weight
+     * are still followed, so a provider reachable only through them gets an
+     * infinite distance.
+     *
+     * @param source the source provider id.
+     * @param scratch the working memory of the search.
+     * @return the shortest path tree.
+     */
+    public ShortestPathTree search(int source, SearchScratch scratch) {
+        return search(source, null, scratch);
+    }
+
+    /**
+     * Computes the shortest paths from the source, stopping as soon as all the
+     * targets are settled. Since providers are settled in order of distance,
+     * the tree also contains the final values of every provider nearer than
+     * the farthest target.
+     *
+     * @param source the source provider id.
+     * @param targets the target provider ids, null to explore the whole graph.
+     * @param scratch the working memory of the search.
+     * @return the shortest path tree, partial if the search stopped early.
+     * @throws IllegalArgumentException if the scratch is too small for the
+     * graph.
+     */
+    public ShortestPathTree search(int source, int[] targets, SearchScratch scratch) {
+        CompactTrustGraph graph = _serviceGraph.getGraph();
+        int[] offsets = _serviceGraph.offsets();
+        int[] heads = _serviceGraph.targets();
+        double[] weights = _serviceGraph.weights();
+        double[] reputations = _serviceGraph.reputations();
+
+        int n = graph.getProviderCount();
+        if (scratch.capacity() < n) {
+            throw new IllegalArgumentException("The scratch is too small for the graph");
+        }
+        IndexedMinHeap heap = scratch.heap;
+        boolean[] settledFlags = scratch.settled;
+        boolean[] targetFlags = scratch.target;
+        double[] distance = _keepPaths ? new double[n] : scratch.distance;
+        int[] predecessor = _keepPaths ? new int[n] : null;
+        double[] bottleneck = new double[n];
+        Arrays.fill(distance, Double.POSITIVE_INFINITY);
+        if (predecessor != null) {
+            Arrays.fill(predecessor, -1);
+        }
+        Arrays.fill(bottleneck, Double.NaN);
+        Arrays.fill(settledFlags, false);
+        heap.clear();
+
+        int remaining = targets == null ? -1 : markTargets(targets, targetFlags);
+        distance[source] = 0;
+        bottleneck[source] = Double.MAX_VALUE;
+        heap.insert(source, 0);
+        while (!heap.isEmpty()) {
+            int u = heap.poll();
+            settledFlags[u] = true;
+            double du = distance[u];
+            double bu = bottleneck[u];
+            for (int e = offsets[u]; e < offsets[u + 1]; e++) {
+                int w = heads[e];
+                if (settledFlags[w]) {
+                    continue;
+                }
+                double nd = du + weights[e];
+                boolean queued = heap.contains(w);
+                if (!queued || nd < distance[w]) {
+                    distance[w] = nd;
+                    bottleneck[w] = Math.min(bu, reputations[e]);
+                    if (predecessor != null) {
+                        predecessor[w] = _serviceGraph.getGraphEdge(e);
+                    }
+                    if (queued) {
+                        heap.decreaseKey(w, nd);
+                    } else {
+                        heap.insert(w, nd);
+                    }
+                }
+            }
+            if (targetFlags[u]) {
+                targetFlags[u] = false;
+                if (--remaining == 0) {
+                    break;
+                }
+            }
+        }
+        double[] keptDistance = _keepPaths ? distance : null;
+        if (heap.isEmpty()) {
+            clearTargets(targets, targetFlags);
+            return new ShortestPathTree(source, bottleneck, keptDistance, predecessor, null);
+        }
+        BitSet settled = new BitSet(n);
+        for (int v = 0; v < n; v++) {
+            if (settledFlags[v]) {
+                settled.set(v);
+            }
+        }
+        return new ShortestPathTree(source, bottleneck, keptDistance, predecessor, settled);
+    }
+
+    private static int markTargets(int[] targets, boolean[] targetFlags) {
+        int count = 0;
+        for (int t : targets) {
+            if (!targetFlags[t]) {
+                targetFlags[t] = true;
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static void clearTargets(int[] targets, boolean[] targetFlags) {
+        if (targets != null) {
+            for (int t : targets) {
+                targetFlags[t] = false;
+            }
+        }
+    }
+}
@@ -0,0 +1,310 @@
+package it.uninsubria.iot.graph;
+
+import it.uninsubria.iot.utils.IndexedMinHeap;
+import java.util.Arrays;
+
+/**
+ * ALT (A*, landmarks and triangle inequality) index of a {@link ServiceGraph}
+ * for goal directed point to point searches. The distances from and to a few
+ * landmarks are computed once; by the triangle inequality they give a lower
+ * bound of the distance between any two providers, which guides an A* search
+ * towards the target so that only a small part of the graph is settled.
+ * <br/>
+ * The result must be the one of {@link DijkstraEngine}, so the search gives up
+ * (returning NaN, the caller then runs Dijkstra) whenever it cannot guarantee
+ * it: when the target is not reachable with a finite distance, since edges
+ * with infinite weight make the choice of the path depend on the order of
+ * the visit, and when two paths of the same length with different
+ * bottlenecks reach a provider, since Dijkstra would keep the first one it
+ * found. The bounds are slightly lowered to absorb the rounding errors of the
+ * distances, and providers are reopened if their distance improves, so the
+ * search is exact even if the rounded bounds are not consistent.
+ *
+ * @author Lorenzo Bossi
+ */
+public class LandmarkIndex {
+
+    /**
+     * The default number of landmarks.
+     */
+    public static final int DEFAULT_LANDMARKS = 8;
+    /**
+     * The relative amount the lower bounds are lowered by.
+     */
+    private static final double SLACK = 1e-9;
+
+    private final ServiceGraph _serviceGraph;
+    private final int[] _landmarks;
+    /**
+     * [landmark][provider] the distance from the landmark to the provider.
+     */
+    private final double[][] _from;
+    /**
+     * [landmark][provider] the distance from the provider to the landmark.
+     */
+    private final double[][] _to;
+    private final long _buildNanos;
+
+    /**
+     * Selects the landmarks and computes their distances. The first landmark
+     * is the provider with the highest out degree, every following one is the
+     * provider farthest from the ones already selected.
+     *
+     * @param serviceGraph the weighted graph.
+     * @param landmarks the maximum number of landmarks.
+     * @throws IllegalArgumentException if landmarks is less than 1.
+     */
+    public LandmarkIndex(ServiceGraph serviceGraph, int landmarks) {
+        if (landmarks < 1) {
+            throw new IllegalArgumentException("At least a landmark is required");
+        }
+        long start = System.nanoTime();
+        _serviceGraph = serviceGraph;
+        CompactTrustGraph graph = serviceGraph.getGraph();
+        int n = graph.getProviderCount();
+        int m = serviceGraph.getEdgeCount();
+        int count = Math.min(landmarks, n);
+
+        // transposed graph, to compute the distances to the landmarks
+        int[] inOffsets = new int[n + 1];
+        int[] heads = serviceGraph.targets();
+        for (int e = 0; e < m; e++) {
+            inOffsets[heads[e] + 1]++;
+        }
+        for (int v = 0; v < n; v++) {
+            inOffsets[v + 1] += inOffsets[v];
+        }
+        int[] inSources = new int[m];
+        double[] inWeights = new double[m];
+        int[] fill = Arrays.copyOf(inOffsets, n);
+        double[] weights = serviceGraph.weights();
+        for (int u = 0; u < n; u++) {
+            for (int e = serviceGraph.firstEdge(u); e < serviceGraph.endEdge(u); e++) {
+                int pos = fill[heads[e]]++;
+                inSources[pos] = u;
+                inWeights[pos] = weights[e];
+            }
+        }
+
+        int[] selected = new int[count];
+        double[][] from = new double[count][];
+        double[][] to = new double[count][];
+        IndexedMinHeap heap = new IndexedMinHeap(n);
+        double[] nearest = new double[n];
+        Arrays.fill(nearest, Double.POSITIVE_INFINITY);
+        int next = 0;
+        for (int v = 1; v < n; v++) {
+            if (outDegree(serviceGraph, v) > outDegree(serviceGraph, next)) {
+                next = v;
+            }
+        }
+        int l = 0;
+        while (l < count && next >= 0) {
+            selected[l] = next;
+            from[l] = distances(serviceGraph.offsets(), heads, weights, next, heap);
+            to[l] = distances(inOffsets, inSources, inWeights, next, heap);
+            next = -1;
+            for (int v = 0; v < n; v++) {
+                nearest[v] = Math.min(nearest[v], from[l][v]);
+                if (nearest[v] > 0 && nearest[v] < Double.POSITIVE_INFINITY && (next < 0 || nearest[v] > nearest[next])) {
+                    next = v;
+                }
+            }
+            l++;
+        }
+        // stops early if every reachable provider is a landmark
+        _landmarks = Arrays.copyOf(selected, l);
+        _from = Arrays.copyOf(from, l);
+        _to = Arrays.copyOf(to, l);
+        _buildNanos = System.nanoTime() - start;
+    }
+
+    private static int outDegree(ServiceGraph serviceGraph, int provider) {
+        return serviceGraph.endEdge(provider) - serviceGraph.firstEdge(provider);
+    }
+
+    /**
+     * Plain Dijkstra distances from a source on a CSR graph.
+     */
+    private static double[] distances(int[] offsets, int[] heads, double[] weights, int source, IndexedMinHeap heap) {
+        int n = offsets.length - 1;
+        double[] distance = new double[n];
+        boolean[] settled = new boolean[n];
+        Arrays.fill(distance, Double.POSITIVE_INFINITY);
+        heap.clear();
+        distance[source] = 0;
+        heap.insert(source, 0);
+        while (!heap.isEmpty()) {
+            int u = heap.poll();
+            settled[u] = true;
+            for (int e = offsets[u]; e < offsets[u + 1]; e++) {
+                int w = heads[e];
+                double nd = distance[u] + weights[e];
+                if (!settled[w] && nd < distance[w]) {
+                    distance[w] = nd;
+                    if (heap.contains(w)) {
+                        heap.decreaseKey(w, nd);
+                    } else {
+                        heap.insert(w, nd);
+                    }
+                }
+            }
+        }
+        return distance;
+    }
+
+    public ServiceGraph getServiceGraph() {
+        return _serviceGraph;
+    }
+
+    public int getLandmarkCount() {
+        return _landmarks.length;
+    }
+
+    /**
+     * Returns a landmark.
+     *
+     * @param i the index of the landmark.
+     * @return the provider id.
+     */
+    public int getLandmark(int i) {
+        return _landmarks[i];
+    }
+
+    /**
+     * Returns the time spent to build the index.
+     *
+     * @return the build time in nanoseconds.
+     */
+    public long getBuildNanos() {
+        return _buildNanos;
+    }
+
+    /**
+     * Estimates the memory used by the index, the graph is not counted.
+     *
+     * @return the estimated size in bytes.
+     */
+    public long estimateBytes() {
+        long distances = 0;
+        for (int l = 0; l < _landmarks.length; l++) {
+            distances += 8L * (_from[l].length + _to[l].length);
+        }
+        return distances + 4L * _landmarks.length;
+    }
+
+    /**
+     * Returns a lower bound of the distance between two providers.
+     *
+     * @param v the start provider id.
+     * @param t the end provider id.
+     * @return the lower bound, infinity if t cannot be reached from v with a
+     * finite distance.
+     */
+    public double lowerBound(int v, int t) {
+        double bound = 0;
+        for (int l = 0; l < _landmarks.length; l++) {
+            double[] from = _from[l];
+            double[] to = _to[l];
+            // d(v,t) >= d(L,t) - d(L,v) and d(v,t) >= d(v,L) - d(t,L)
+            bound = max(bound, from[t], from[v]);
+            bound = max(bound, to[v], to[t]);
+        }
+        return bound;
+    }
+
+    private static double max(double bound, double a, double b) {
+        if (b == Double.POSITIVE_INFINITY) {
+            return bound; // no information
+        }
+        if (a == Double.POSITIVE_INFINITY) {
+            return Double.POSITIVE_INFINITY;
+        }
+        return Math.max(bound, a - b - SLACK * (a + b));
+    }
+
+    /**
+     * Computes the reputation of the target from the point of view of the
+     * source with an A* search.
+     *
+     * @param source the source provider id.
+     * @param target the target provider id.
+     * @param scratch the working memory of the search.
+     * @return the reputation the {@link DijkstraEngine} would give, NaN if the
+     * search cannot guarantee it.
+     */
+    public double getReputation(int source, int target, SearchScratch scratch) {
+        if (source == target) {
+            return 0;
+        }
+        if (lowerBound(source, target) == Double.POSITIVE_INFINITY) {
+            return Double.NaN; // only paths with infinite weight, if any
+        }
+        int[] offsets = _serviceGraph.offsets();
+        int[] heads = _serviceGraph.targets();
+        double[] weights = _serviceGraph.weights();
+        double[] reputations = _serviceGraph.reputations();
+
+        scratch.ensureGoalState();
+        IndexedMinHeap heap = scratch.heap;
+        double[] g = scratch.goalDistance;
+        double[] bottleneck = scratch.goalBottleneck;
+        int[] touched = scratch.touched;
+        int touchedCount = 0;
+        int settled = 0;
+        boolean ambiguous = false;
+
+        heap.clear();
+        g[source] = 0;
+        bottleneck[source] = Double.MAX_VALUE;
+        touched[touchedCount++] = source;
+        heap.insert(source, lowerBound(source, target));
+        while (!heap.isEmpty()) {
+            int u = heap.peek();
+            // all the providers which may be on a shortest path to the target
+            // are settled, so every tie on its path has been seen
+            if (heap.getKey(u) > g[target]) {
+                break;
+            }
+            heap.poll();
+            settled++;
+            double gu = g[u];
+            double bu = bottleneck[u];
+            for (int e = offsets[u]; e < offsets[u + 1]; e++) {
+                int w = heads[e];
+                double nd = gu + weights[e];
+                if (nd == Double.POSITIVE_INFINITY) {
+                    continue;
+                }
+                double b = Math.min(bu, reputations[e]);
+                if (nd < g[w]) {
+                    if (g[w] == Double.POSITIVE_INFINITY) {
+                        touched[touchedCount++] = w;
+                    }
+                    g[w] = nd;
+                    bottleneck[w] = b;
+                    double f = nd + lowerBound(w, target);
+                    if (f == Double.POSITIVE_INFINITY) {
+                        continue;
+                    }
+                    if (heap.contains(w)) {
+                        heap.decreaseKey(w, f);
+                    } else {
+                        heap.insert(w, f);
+                    }
+                } else if (nd == g[w] && w != source && b != bottleneck[w]) {
+                    ambiguous = true;
+                }
+            }
+        }
+        double reputation = g[target] == Double.POSITIVE_INFINITY || ambiguous ? Double.NaN : bottleneck[target];
+
+        heap.clear();
+        for (int i = 0; i < touchedCount; i++) {
+            int v = touched[i];
+            g[v] = Double.POSITIVE_INFINITY;
+        }
+        scratch.lastSettled = settled;
+        return reputation;
+    }
+}
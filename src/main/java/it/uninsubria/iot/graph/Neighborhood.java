@@ -0,0 +1,165 @@
+package it.uninsubria.iot.graph;
+
+import it.uninsubria.iot.utils.AtomicBitSet;
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * The providers within a given number of hops from a source, found with a
+ * level synchronous breadth first search. Every provider is recorded with its
+ * exact hop distance; the providers are ordered by distance and, within the
+ * same distance, by id, so the result does not depend on how the levels were
+ * expanded. Frontiers wider than a threshold are expanded in parallel.
+ *
+ * @author Lorenzo Bossi
+ */
+public class Neighborhood {
+
+    private final int[] _providers;
+    private final int[] _levelOffsets;
+    private final AtomicBitSet _visited;
+
+    /**
+     * Collects the neighborhood sequentially.
+     *
+     * @param graph the graph.
+     * @param source the source provider id.
+     * @param maxHops the maximum distance from the source.
+     */
+    public Neighborhood(CompactTrustGraph graph, int source, int maxHops) {
+        this(graph, source, maxHops, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Collects the neighborhood.
+     *
+     * @param graph the graph.
+     * @param source the source provider id.
+     * @param maxHops the maximum distance from the source.
+     * @param parallelThreshold the minimum size of a frontier to expand it in
+     * parallel.
+     * @throws IllegalArgumentException if maxHops is negative.
+     */
+    public Neighborhood(CompactTrustGraph graph, int source, int maxHops, int parallelThreshold) {
+        if (maxHops < 0) {
+            throw new IllegalArgumentException("maxHops cannot be negative");
+        }
+        _visited = new AtomicBitSet(graph.getProviderCount());
+        _visited.set(source);
+        int[] providers = new int[]{source};
+        int size = 1;
+        int[] levelOffsets = new int[maxHops + 2];
+        levelOffsets[1] = 1;
+        int[] frontier = new int[]{source};
+        int hops = 0;
+        while (hops < maxHops) {
+            frontier = frontier.length >= parallelThreshold
+                    ? expandParallel(graph, frontier)
+                    : expand(graph, frontier);
+            if (frontier.length == 0) {
+                break;
+            }
+            Arrays.sort(frontier);
+            if (size + frontier.length > providers.length) {
+                providers = Arrays.copyOf(providers, Math.max(size + frontier.length, providers.length * 2));
+            }
+            System.arraycopy(frontier, 0, providers, size, frontier.length);
+            size += frontier.length;
+            hops++;
+            levelOffsets[hops + 1] = size;
+        }
+        _providers = Arrays.copyOf(providers, size);
+        _levelOffsets = Arrays.copyOf(levelOffsets, hops + 2);
+    }
+
+    private int[] expand(CompactTrustGraph graph, int[] frontier) {
+        int[] next = new int[16];
+        int size = 0;
+        for (int u : frontier) {
+            for (int e = graph.firstEdge(u); e < graph.endEdge(u); e++) {
+                int w = graph.getTarget(e);
+                if (_visited.set(w)) {
+                    if (size == next.length) {
+                        next = Arrays.copyOf(next, size * 2);
+                    }
+                    next[size++] = w;
+                }
+            }
+        }
+        return Arrays.copyOf(next, size);
+    }
+
+    private int[] expandParallel(CompactTrustGraph graph, int[] frontier) {
+        return IntStream.of(frontier).parallel()
+                .flatMap(u -> IntStream.range(graph.firstEdge(u), graph.endEdge(u)).map(graph::getTarget))
+                .filter(_visited::set)
+                .toArray();
+    }
+
+    /**
+     * Returns the number of providers in the neighborhood, the source
+     * included.
+     *
+     * @return the number of providers.
+     */
+    public int size() {
+        return _providers.length;
+    }
+
+    /**
+     * Returns the i-th provider, ordered by distance from the source.
+     *
+     * @param i the position in [0, size()).
+     * @return the provider id.
+     */
+    public int getProvider(int i) {
+        return _providers[i];
+    }
+
+    /**
+     * Returns the maximum distance actually reached, which is less than the
+     * requested one if the search ran out of providers.
+     *
+     * @return the number of levels after the source.
+     */
+    public int getMaxHops() {
+        return _levelOffsets.length - 2;
+    }
+
+    /**
+     * Returns the providers at exactly the given distance from the source.
+     *
+     * @param hops the distance.
+     * @return the provider ids, sorted.
+     */
+    public int[] getLevel(int hops) {
+        if (hops < 0 || hops > getMaxHops()) {
+            return new int[0];
+        }
+        return Arrays.copyOfRange(_providers, _levelOffsets[hops], _levelOffsets[hops + 1]);
+    }
+
+    /**
+     * Returns the number of hops from the source to the i-th provider.
+     *
+     * @param i the position in [0, size()).
+     * @return the distance.
+     */
+    public int getHops(int i) {
+        int level = Arrays.binarySearch(_levelOffsets, i);
+        if (level >= 0) {
+            return level;
+        }
+        return -level - 2;
+    }
+
+    /**
+     * Checks if the provider is in the neighborhood.
+     *
+     * @param provider the provider id.
+     * @return true if the provider is within the distance.
+     */
+    public boolean contains(int provider) {
+        return _visited.get(provider);
+    }
+}
@@ -0,0 +1,208 @@
+package it.uninsubria.iot.graph;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.IntStream;
+
+/**
+ * The reputation of every provider from the point of view of every other
+ * provider, for every service of a {@link CompactTrustGraph}. The table is
+ * built once with a complete shortest path search per (service, source)
+ * pair, the searches are independent and run in parallel on a fork-join
+ * pool; afterwards a reputation is a single array read.
+ * <br/>
+ * The table takes services × providers² cells, so it is meant for graphs of
+ * up to some thousands of providers. The reputations can be stored as 32 bits
+ * floats or quantized to 16 or 8 bits, with an absolute error of at most
+ * 1/65534 and 1/254 respectively.
+ *
+ * @author Lorenzo Bossi
+ */
+public class ReputationTable {
+
+    private static final double SHORT_SCALE = Short.MAX_VALUE;
+    private static final double BYTE_SCALE = Byte.MAX_VALUE;
+
+    private final CompactTrustGraph _graph;
+    private final int _providers;
+    private final int _bits;
+    /*
+     * [service][source * providers + target], only the array of the chosen
+     * precision is allocated.
+     */
+    private final float[][] _floats;
+    private final short[][] _shorts;
+    private final byte[][] _bytes;
+
+    private final long _buildNanos;
+    private final long _searchNanos;
+    private final int _parallelism;
+
+    /**
+     * Builds the table following all the edges.
+     *
+     * @param graph the graph.
+     * @param bits the size of a stored reputation: 32, 16 or 8.
+     * @param pool the pool the searches are run in.
+     * @throws IllegalArgumentException if bits is not 32, 16 or 8 or the
+     * graph has too many providers for a table.
+     */
+    public ReputationTable(CompactTrustGraph graph, int bits, ForkJoinPool pool) {
+        this(graph, bits, 0, false, pool);
+    }
+
+    /**
+     * Builds the table.
+     *
+     * @param graph the graph.
+     * @param bits the size of a stored reputation: 32, 16 or 8.
+     * @param minSimilarity the minimum similarity of the followed edges.
+     * @param coalesce true to coalesce the parallel edges, see
+     * {@link ServiceGraph#ServiceGraph(CompactTrustGraph, int, double, boolean)}.
+     * @param pool the pool the searches are run in.
+     * @throws IllegalArgumentException if bits is not 32, 16 or 8, the graph
+     * has too many providers for a table or minSimilarity is not in [0,1].
+     */
+    public ReputationTable(CompactTrustGraph graph, int bits, double minSimilarity, boolean coalesce, ForkJoinPool pool) {
+        if (bits != 32 && bits != 16 && bits != 8) {
+            throw new IllegalArgumentException("The reputations can be stored in 32, 16 or 8 bits");
+        }
+        int n = graph.getProviderCount();
+        int services = graph.getServiceCount();
+        if ((long) n * n > Integer.MAX_VALUE || (long) n * services > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("The graph is too large for a reputation table");
+        }
+        long start = System.nanoTime();
+        _graph = graph;
+        _providers = n;
+        _bits = bits;
+        _floats = bits == 32 ? new float[services][n * n] : null;
+        _shorts = bits == 16 ? new short[services][n * n] : null;
+        _bytes = bits == 8 ? new byte[services][n * n] : null;
+        _parallelism = pool.getParallelism();
+
+        DijkstraEngine[] engines = new DijkstraEngine[services];
+        for (int s = 0; s < services; s++) {
+            engines[s] = new DijkstraEngine(new ServiceGraph(graph, s, minSimilarity, coalesce));
+        }
+        ThreadLocal<SearchScratch> scratch = ThreadLocal.withInitial(() -> new SearchScratch(n));
+        LongAdder searchNanos = new LongAdder();
+        // every task writes its own row, the join publishes them
+        pool.submit(() -> IntStream.range(0, services * n).parallel().forEach(task -> {
+            long taskStart = System.nanoTime();
+            int service = task / n;
+            int source = task % n;
+            ShortestPathTree tree = engines[service].search(source, scratch.get());
+            int row = source * n;
+            for (int target = 0; target < n; target++) {
+                store(service, row + target, tree.getReputation(target));
+            }
+            searchNanos.add(System.nanoTime() - taskStart);
+        })).join();
+        _searchNanos = searchNanos.sum();
+        _buildNanos = System.nanoTime() - start;
+    }
+
+    private void store(int service, int cell, double reputation) {
+        if (_floats != null) {
+            _floats[service][cell] = (float) reputation;
+        } else if (_shorts != null) {
+            _shorts[service][cell] = (short) Math.round(reputation * SHORT_SCALE);
+        } else {
+            _bytes[service][cell] = (byte) Math.round(reputation * BYTE_SCALE);
+        }
+    }
+
+    /**
+     * Returns the reputation of the target from the point of view of the
+     * source, as computed by {@link DijkstraEngine}.
+     *
+     * @param service the service id.
+     * @param source the source provider id.
+     * @param target the target provider id.
+     * @return the reputation [-1,1], 0 if the target is the source or it is
+     * not reachable.
+     */
+    public double getReputation(int service, int source, int target) {
+        int cell = source * _providers + target;
+        if (_floats != null) {
+            return _floats[service][cell];
+        } else if (_shorts != null) {
+            return _shorts[service][cell] / SHORT_SCALE;
+        }
+        return _bytes[service][cell] / BYTE_SCALE;
+    }
+
+    public CompactTrustGraph getGraph() {
+        return _graph;
+    }
+
+    /**
+     * Returns the size of a stored reputation.
+     *
+     * @return 32, 16 or 8.
+     */
+    public int getBits() {
+        return _bits;
+    }
+
+    /**
+     * Returns the maximum absolute difference between a stored reputation and
+     * the computed one.
+     *
+     * @return the quantization error.
+     */
+    public double getMaxError() {
+        if (_bits == 32) {
+            return Math.ulp(1f);
+        }
+        return 0.5 / (_bits == 16 ? SHORT_SCALE : BYTE_SCALE);
+    }
+
+    /**
+     * Returns the wall clock time taken to build the table.
+     *
+     * @return the time in nanoseconds.
+     */
+    public long getBuildNanos() {
+        return _buildNanos;
+    }
+
+    /**
+     * Returns the time spent in the searches, summed over all the threads.
+     *
+     * @return the time in nanoseconds.
+     */
+    public long getSearchNanos() {
+        return _searchNanos;
+    }
+
+    /**
+     * Returns the parallelism of the pool the table was built in.
+     *
+     * @return the number of threads.
+     */
+    public int getParallelism() {
+        return _parallelism;
+    }
+
+    /**
+     * Returns how many times the parallel build was faster than running the
+     * searches one after the other; divided by the parallelism it gives the
+     * efficiency of the scaling.
+     *
+     * @return the speedup.
+     */
+    public double getSpeedup() {
+        return _buildNanos == 0 ? 1 : (double) _searchNanos / _buildNanos;
+    }
+
+    /**
+     * Estimates the memory used by the table.
+     *
+     * @return the estimated size in bytes.
+     */
+    public long estimateBytes() {
+        return (long) _graph.getServiceCount() * _providers * _providers * (_bits / 8);
+    }
+}
@@ -0,0 +1,69 @@
+package it.uninsubria.iot.graph;
+
+import it.uninsubria.iot.utils.IndexedMinHeap;
+import java.util.Arrays;
+
+/**
+ * The working memory of a shortest path search: the heap and the per provider
+ * flags and distances. A scratch can be reused by any number of searches on
+ * graphs with the same number of providers, but only by one thread at a time.
+ *
+ * @author Lorenzo Bossi
+ */
+public class SearchScratch {
+
+    final IndexedMinHeap heap;
+    final boolean[] settled;
+    final boolean[] target;
+    final double[] distance;
+
+    /*
+     * The state of the goal directed searches, allocated the first time one
+     * is run. Unlike the arrays above, the searches restore them before
+     * returning, so only the touched providers are reset.
+     */
+    double[] goalDistance;
+    double[] goalBottleneck;
+    int[] touched;
+    int lastSettled;
+
+    /**
+     *
+     * @param providers the number of providers of the graph.
+     */
+    public SearchScratch(int providers) {
+        heap = new IndexedMinHeap(providers);
+        settled = new boolean[providers];
+        target = new boolean[providers];
+        distance = new double[providers];
+    }
+
+    void ensureGoalState() {
+        if (goalDistance == null) {
+            int n = capacity();
+            goalDistance = new double[n];
+            Arrays.fill(goalDistance, Double.POSITIVE_INFINITY);
+            goalBottleneck = new double[n];
+            touched = new int[n];
+        }
+    }
+
+    /**
+     * Returns the number of providers settled by the last goal directed
+     * search.
+     *
+     * @return the number of settled providers.
+     */
+    public int getLastSettled() {
+        return lastSettled;
+    }
+
+    /**
+     * Returns the number of providers this scratch can handle.
+     *
+     * @return the number of providers.
+     */
+    public int capacity() {
+        return settled.length;
+    }
+}
@@ -0,0 +1,290 @@
+package it.uninsubria.iot.graph;
+
+import it.uninsubria.iot.entities.Service;
+import java.util.Arrays;
+
+/**
+ * The trust graph weighted for a specific service. The weights of all the
+ * edges are computed once, when the view is built, according to the formula
+ * w_s(e) = 1 / [ l(s, s(e)) · (2 + r(e)) ] where l is the similarity of the
+ * services and r the trust level of the edge.
+ * <br/>
+ * The view can drop the edges whose service is not similar enough to the
+ * current one: the searches then scan only the meaningful edges, and the
+ * more specialized the service the smaller its adjacency. Without a threshold
+ * the view shares the adjacency of the graph and its edge ids are the ones of
+ * the graph; otherwise the kept edges are renumbered and
+ * {@link #getGraphEdge(int)} maps them back. The view can also keep a single
+ * edge between two providers, the only one a shortest path can use.
+ *
+ * @author Lorenzo Bossi
+ */
+public class ServiceGraph {
+
+    private final CompactTrustGraph _graph;
+    private final int _service;
+    private final double[] _similarity;
+    private final double[] _weights;
+    private final double[] _reputations;
+    private final double _minSimilarity;
+    private final int[] _offsets;
+    private final int[] _targets;
+    /**
+     * The graph edge of every kept edge, null if all the edges are kept.
+     */
+    private final int[] _graphEdges;
+    private final int _coalesced;
+
+    /**
+     * Builds the weighted view of all the edges.
+     *
+     * @param graph the graph.
+     * @param service the id of the service we are considering.
+     */
+    public ServiceGraph(CompactTrustGraph graph, int service) {
+        this(graph, service, 0);
+    }
+
+    /**
+     * Builds the weighted view of the edges whose service has at least the
+     * given similarity with the current one. With a positive threshold the
+     * providers reachable only through dropped edges become unreachable, and
+     * the shortest paths which used them change.
+     *
+     * @param graph the graph.
+     * @param service the id of the service we are considering.
+     * @param minSimilarity the minimum similarity of a kept edge, 0 to keep
+     * all the edges, even those with infinite weight.
+     * @throws IllegalArgumentException if minSimilarity is not in [0,1].
+     */
+    public ServiceGraph(CompactTrustGraph graph, int service, double minSimilarity) {
+        this(graph, service, minSimilarity, false);
+    }
+
+    /**
+     * Builds the weighted view of the edges whose service has at least the
+     * given similarity with the current one, optionally coalescing the
+     * parallel edges. Among the edges from u to v only the one with the
+     * lowest weight can be on a shortest path, so only the first one with
+     * the lowest weight is kept, at the position of the first edge from u to
+     * v. The distances do not change and neither do the reputations, with
+     * the exception of the ties the search breaks by the order of the visit,
+     * like the providers reachable only through edges with infinite weight.
+     *
+     * @param graph the graph.
+     * @param service the id of the service we are considering.
+     * @param minSimilarity the minimum similarity of a kept edge, 0 to keep
+     * all the edges, even those with infinite weight.
+     * @param coalesce true to keep a single edge between two providers.
+     * @throws IllegalArgumentException if minSimilarity is not in [0,1].
+     */
+    public ServiceGraph(CompactTrustGraph graph, int service, double minSimilarity, boolean coalesce) {
+        if (!(minSimilarity >= 0 && minSimilarity <= 1)) {
+            throw new IllegalArgumentException("minSimilarity must be in [0,1]");
+        }
+        _graph = graph;
+        _service = service;
+        _minSimilarity = minSimilarity;
+        Service current = graph.getService(service);
+        _similarity = new double[graph.getServiceCount()];
+        for (int s = 0; s < _similarity.length; s++) {
+            _similarity[s] = graph.getService(s).similarity(current);
+        }
+
+        int[] edgeServices = graph.edgeServices();
+        int m = edgeServices.length;
+        if (minSimilarity == 0 && !coalesce) {
+            _offsets = graph.offsets();
+            _targets = graph.targets();
+            _graphEdges = null;
+            _coalesced = 0;
+        } else {
+            int n = graph.getProviderCount();
+            int[] heads = graph.targets();
+            int[] targets = new int[m];
+            int[] graphEdges = new int[m];
+            // the position of the edge to every target of the current source
+            int[] position = new int[n];
+            Arrays.fill(position, -1);
+            int coalesced = 0;
+            _offsets = new int[n + 1];
+            int edge = 0;
+            for (int v = 0; v < n; v++) {
+                _offsets[v] = edge;
+                for (int e = graph.firstEdge(v); e < graph.endEdge(v); e++) {
+                    if (minSimilarity > 0 && !isKept(edgeServices[e])) {
+                        continue;
+                    }
+                    int w = heads[e];
+                    if (coalesce && position[w] >= 0) {
+                        if (weight(e) < weight(graphEdges[position[w]])) {
+                            graphEdges[position[w]] = e;
+                        }
+                        coalesced++;
+                        continue;
+                    }
+                    position[w] = edge;
+                    targets[edge] = w;
+                    graphEdges[edge] = e;
+                    edge++;
+                }
+                for (int i = _offsets[v]; i < edge; i++) {
+                    position[targets[i]] = -1;
+                }
+            }
+            _offsets[n] = edge;
+            _targets = Arrays.copyOf(targets, edge);
+            _graphEdges = Arrays.copyOf(graphEdges, edge);
+            _coalesced = coalesced;
+        }
+        _weights = new double[_targets.length];
+        _reputations = new double[_targets.length];
+        for (int i = 0; i < _weights.length; i++) {
+            int e = getGraphEdge(i);
+            _weights[i] = weight(e);
+            _reputations[i] = _similarity[edgeServices[e]] * _graph.getLevel(e);
+        }
+    }
+
+    private double weight(int edge) {
+        double den = _similarity[_graph.getEdgeService(edge)] * (2 + _graph.getLevel(edge));
+        return 1 / den;
+    }
+
+    private boolean isKept(int edgeService) {
+        double similarity = _similarity[edgeService];
+        return similarity > 0 && similarity >= _minSimilarity;
+    }
+
+    public CompactTrustGraph getGraph() {
+        return _graph;
+    }
+
+    /**
+     * Returns the id of the service this view is weighted for.
+     *
+     * @return the service id.
+     */
+    public int getService() {
+        return _service;
+    }
+
+    /**
+     * Returns the minimum similarity of the kept edges.
+     *
+     * @return the threshold, 0 if all the edges are kept.
+     */
+    public double getMinSimilarity() {
+        return _minSimilarity;
+    }
+
+    /**
+     * Returns the number of parallel edges removed by the coalescing.
+     *
+     * @return the number of removed edges, 0 if the edges are not coalesced.
+     */
+    public int getCoalescedEdgeCount() {
+        return _coalesced;
+    }
+
+    /**
+     * Returns the number of edges of the view.
+     *
+     * @return the number of kept edges.
+     */
+    public int getEdgeCount() {
+        return _targets.length;
+    }
+
+    /**
+     * Returns the first outgoing edge of the provider in the view.
+     *
+     * @param provider the provider id.
+     * @return the id of the first outgoing edge.
+     */
+    public int firstEdge(int provider) {
+        return _offsets[provider];
+    }
+
+    /**
+     * Returns the end (exclusive) of the outgoing edges of the provider in the
+     * view.
+     *
+     * @param provider the provider id.
+     * @return the id after the last outgoing edge.
+     */
+    public int endEdge(int provider) {
+        return _offsets[provider + 1];
+    }
+
+    /**
+     * Returns the provider the edge points to.
+     *
+     * @param edge the edge id in the view.
+     * @return the target provider id.
+     */
+    public int getTarget(int edge) {
+        return _targets[edge];
+    }
+
+    /**
+     * Returns the edge of the graph an edge of the view comes from.
+     *
+     * @param edge the edge id in the view.
+     * @return the edge id in the graph.
+     */
+    public int getGraphEdge(int edge) {
+        return _graphEdges == null ? edge : _graphEdges[edge];
+    }
+
+    /**
+     * Returns the weight of the edge.
+     *
+     * @param edge the edge id in the view.
+     * @return the weight > 0, infinity if the service of the edge has nothing
+     * in common with the current one.
+     */
+    public double getWeight(int edge) {
+        return _weights[edge];
+    }
+
+    /**
+     * Returns the trust the edge gives to the current service, that is the
+     * trust level scaled by the similarity of the services.
+     *
+     * @param edge the edge id in the view.
+     * @return the trust in [-1,1].
+     */
+    public double getReputation(int edge) {
+        return _reputations[edge];
+    }
+
+    /**
+     * Estimates the memory used by this view, the graph is not counted.
+     *
+     * @return the estimated size in bytes.
+     */
+    public long estimateBytes() {
+        long bytes = 8L * (_similarity.length + _weights.length + _reputations.length);
+        if (_graphEdges != null) {
+            bytes += 4L * (_offsets.length + _targets.length + _graphEdges.length);
+        }
+        return bytes;
+    }
+
+    int[] offsets() {
+        return _offsets;
+    }
+
+    int[] targets() {
+        return _targets;
+    }
+
+    double[] weights() {
+        return _weights;
+    }
+
+    double[] reputations() {
+        return _reputations;
+    }
+}
@@ -0,0 +1,133 @@
+package it.uninsubria.iot.graph;
+
+import java.util.BitSet;
+
+/**
+ * The result of a single source shortest path search. For every provider it
+ * stores the bottleneck of the shortest path from the source, that is the
+ * minimum trust given by an edge of the path, which is the reputation of the
+ * provider. When the engine keeps the paths, the distance and the edge used to
+ * reach every provider are stored too. A search stopped early produces a
+ * partial tree, where the values are final only for the settled providers.
+ *
+ * @author Lorenzo Bossi
+ */
+public class ShortestPathTree {
+
+    private final int _source;
+    private final double[] _bottleneck;
+    private final double[] _distance;
+    private final int[] _predecessor;
+    private final BitSet _settled;
+
+    ShortestPathTree(int source, double[] bottleneck, double[] distance, int[] predecessor, BitSet settled) {
+        _source = source;
+        _bottleneck = bottleneck;
+        _distance = distance;
+        _predecessor = predecessor;
+        _settled = settled;
+    }
+
+    public int getSource() {
+        return _source;
+    }
+
+    /**
+     * Checks if the search explored the whole reachable graph.
+     *
+     * @return true if every provider is settled.
+     */
+    public boolean isComplete() {
+        return _settled == null;
+    }
+
+    /**
+     * Checks if the values of the provider are final.
+     *
+     * @param provider the provider id.
+     * @return true if the provider is settled.
+     */
+    public boolean isSettled(int provider) {
+        return _settled == null || _settled.get(provider);
+    }
+
+    /**
+     * Checks if there is a path from the source to the provider. The result
+     * is meaningful only for settled providers.
+     *
+     * @param provider the provider id.
+     * @return true if the provider is the source or can be reached from it.
+     */
+    public boolean isReachable(int provider) {
+        return !Double.isNaN(_bottleneck[provider]);
+    }
+
+    /**
+     * Returns the reputation of the provider from the point of view of the
+     * source: the minimum trust along the shortest path.
+     *
+     * @param provider the provider id.
+     * @return the reputation [-1,1], 0 if the provider is the source or it is
+     * not reachable.
+     */
+    public double getReputation(int provider) {
+        if (provider == _source || !isReachable(provider)) {
+            return 0;
+        }
+        return _bottleneck[provider];
+    }
+
+    /**
+     * Checks if the tree stores distances and predecessors.
+     *
+     * @return true if the paths can be inspected.
+     */
+    public boolean hasPaths() {
+        return _predecessor != null;
+    }
+
+    /**
+     * Returns the length of the shortest path from the source.
+     *
+     * @param provider the provider id.
+     * @return the distance, infinity if the provider is not reachable.
+     * @throws IllegalStateException if the tree does not keep the paths.
+     */
+    public double getDistance(int provider) {
+        if (_distance == null) {
+            throw new IllegalStateException("The tree does not keep the paths");
+        }
+        return _distance[provider];
+    }
+
+    /**
+     * Returns the last edge of the shortest path from the source.
+     *
+     * @param provider the provider id.
+     * @return the edge id or -1 if the provider is the source or it is not
+     * reachable.
+     * @throws IllegalStateException if the tree does not keep the paths.
+     */
+    public int getPredecessorEdge(int provider) {
+        if (_predecessor == null) {
+            throw new IllegalStateException("The tree does not keep the paths");
+        }
+        return _predecessor[provider];
+    }
+
+    /**
+     * Estimates the memory used by this tree.
+     *
+     * @return the estimated size in bytes.
+     */
+    public long estimateBytes() {
+        long bytes = 64 + 8L * _bottleneck.length;
+        if (_predecessor != null) {
+            bytes += 8L * _distance.length + 4L * _predecessor.length;
+        }
+        if (_settled != null) {
+            bytes += _settled.size() / 8;
+        }
+        return bytes;
+    }
+}
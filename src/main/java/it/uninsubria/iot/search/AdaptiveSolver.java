@@ -0,0 +1,43 @@
+package it.uninsubria.iot.search;
+
+/**
+ * Chooses, for each query, between an exact and a heuristic solver: spaces
+ * with up to a given number of working units are searched exactly.
+ *
+ * @author Lorenzo Bossi
+ */
+public class AdaptiveSolver implements WorkingUnitSolver {
+
+    private final long _exactLimit;
+    private final WorkingUnitSolver _exact;
+    private final WorkingUnitSolver _heuristic;
+
+    /**
+     *
+     * @param exactLimit the largest number of working units searched with
+     * the exact solver.
+     * @param exact the exact solver.
+     * @param heuristic the solver used for larger spaces.
+     */
+    public AdaptiveSolver(long exactLimit, WorkingUnitSolver exact, WorkingUnitSolver heuristic) {
+        _exactLimit = exactLimit;
+        _exact = exact;
+        _heuristic = heuristic;
+    }
+
+    /**
+     * Returns the solver used for a space.
+     *
+     * @param space the search space.
+     * @return the exact solver if the space has at most the limit of working
+     * units, the heuristic one otherwise.
+     */
+    public WorkingUnitSolver select(SearchSpace space) {
+        return space.size() <= _exactLimit ? _exact : _heuristic;
+    }
+
+    @Override
+    public void search(ReputationMatrix reputations, Incumbents incumbents) {
+        select(reputations.getSpace()).search(reputations, incumbents);
+    }
+}
@@ -0,0 +1,115 @@
+package it.uninsubria.iot.search;
+
+import it.uninsubria.iot.utils.CustomRandom;
+
+/**
+ * Local search of the best working units by simulated annealing. At each step
+ * the candidate of a random slot is replaced by another random candidate; the
+ * move is kept if it does not worsen the overall reputation or, otherwise,
+ * with a probability which decreases with the temperature. The temperature
+ * decreases geometrically from the initial to the final value. The search
+ * starts from the best incumbent, if any, so it can refine the result of
+ * another solver, otherwise from a random working unit. Every move is scored
+ * incrementally.
+ *
+ * @author Lorenzo Bossi
+ */
+public class AnnealingSolver implements WorkingUnitSolver {
+
+    /**
+     * The default initial temperature, on the scale of the reputations.
+     */
+    public static final double DEFAULT_INITIAL_TEMPERATURE = 0.1;
+    /**
+     * The default final temperature.
+     */
+    public static final double DEFAULT_FINAL_TEMPERATURE = 1e-4;
+
+    private final CustomRandom _rnd;
+    private final int _iterations;
+    private final double _initialTemperature;
+    private final double _finalTemperature;
+
+    /**
+     * Creates a solver with the default temperatures.
+     *
+     * @param rnd the random number generator.
+     * @param iterations the number of moves.
+     */
+    public AnnealingSolver(CustomRandom rnd, int iterations) {
+        this(rnd, iterations, DEFAULT_INITIAL_TEMPERATURE, DEFAULT_FINAL_TEMPERATURE);
+    }
+
+    /**
+     *
+     * @param rnd the random number generator.
+     * @param iterations the number of moves.
+     * @param initialTemperature the temperature of the first move.
+     * @param finalTemperature the temperature of the last move.
+     * @throws IllegalArgumentException if iterations is negative or the
+     * temperatures are not positive.
+     */
+    public AnnealingSolver(CustomRandom rnd, int iterations, double initialTemperature, double finalTemperature) {
+        if (iterations < 0) {
+            throw new IllegalArgumentException("The number of iterations cannot be negative");
+        }
+        if (!(initialTemperature > 0) || !(finalTemperature > 0)) {
+            throw new IllegalArgumentException("The temperatures must be positive");
+        }
+        _rnd = rnd;
+        _iterations = iterations;
+        _initialTemperature = initialTemperature;
+        _finalTemperature = finalTemperature;
+    }
+
+    @Override
+    public void search(ReputationMatrix reputations, Incumbents incumbents) {
+        SearchSpace space = reputations.getSpace();
+        if (space.isEmpty()) {
+            return;
+        }
+        incumbents.markInexact();
+        int slots = space.getSlotCount();
+        IncrementalScorer scorer = new IncrementalScorer(reputations);
+        int[] start = incumbents.isEmpty() ? null : incumbents.getChoices().get(0).first;
+        for (int slot = 0; slot < slots; slot++) {
+            scorer.set(slot, start == null ? _rnd.nextInt(space.getCandidateCount(slot)) : start[slot]);
+        }
+        double current = value(scorer.score());
+        if (start == null && current > Double.NEGATIVE_INFINITY) {
+            incumbents.offer(scorer.getChoice(), current);
+        }
+
+        double cooling = Math.log(_finalTemperature / _initialTemperature);
+        for (int i = 0; i < _iterations && !incumbents.shouldStop(); i++) {
+            int slot = _rnd.nextInt(slots);
+            int candidates = space.getCandidateCount(slot);
+            if (candidates == 1) {
+                continue;
+            }
+            int old = scorer.getChoice()[slot];
+            int ci = _rnd.nextInt(candidates - 1);
+            if (ci >= old) {
+                ci++;
+            }
+            scorer.set(slot, ci);
+            double next = value(scorer.score());
+            double temperature = _initialTemperature * Math.exp(cooling * i / _iterations);
+            if (next >= current || _rnd.nextDouble() < Math.exp((next - current) / temperature)) {
+                current = next;
+                if (next > Double.NEGATIVE_INFINITY) {
+                    incumbents.offer(scorer.getChoice(), next);
+                }
+            } else {
+                scorer.set(slot, old);
+            }
+        }
+    }
+
+    /**
+     * Working units with a single provider are never accepted as better.
+     */
+    private static double value(double score) {
+        return Double.isNaN(score) ? Double.NEGATIVE_INFINITY : score;
+    }
+}
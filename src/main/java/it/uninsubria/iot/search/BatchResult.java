@@ -0,0 +1,84 @@
+package it.uninsubria.iot.search;
+
+import it.uninsubria.iot.entities.WorkingUnit;
+import it.uninsubria.iot.utils.Pair;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The outcome of a batch of working unit queries.
+ *
+ * @author Lorenzo Bossi
+ */
+public class BatchResult {
+
+    private final List<Pair<WorkingUnit, Double>> _results;
+    private final long _elapsedNanos;
+    private final int _neighborhoods;
+    private final int _trees;
+
+    /**
+     *
+     * @param results the best working unit of every query, in the order of the
+     * queries, null for the queries without a working unit.
+     * @param elapsedNanos the duration of the batch.
+     * @param neighborhoods the number of distinct neighborhoods expanded.
+     * @param trees the number of distinct shortest path searches.
+     */
+    public BatchResult(List<Pair<WorkingUnit, Double>> results, long elapsedNanos, int neighborhoods, int trees) {
+        _results = Collections.unmodifiableList(results);
+        _elapsedNanos = elapsedNanos;
+        _neighborhoods = neighborhoods;
+        _trees = trees;
+    }
+
+    /**
+     * Returns the result of a query.
+     *
+     * @param query the position of the query in the batch.
+     * @return a pair with the best working unit and its overall reputation or
+     * null if the query has no working unit.
+     */
+    public Pair<WorkingUnit, Double> get(int query) {
+        return _results.get(query);
+    }
+
+    /**
+     * Returns the results of all the queries.
+     *
+     * @return a readonly list in the order of the queries.
+     */
+    public List<Pair<WorkingUnit, Double>> getResults() {
+        return _results;
+    }
+
+    public int size() {
+        return _results.size();
+    }
+
+    public long getElapsedNanos() {
+        return _elapsedNanos;
+    }
+
+    public int getNeighborhoodCount() {
+        return _neighborhoods;
+    }
+
+    public int getTreeCount() {
+        return _trees;
+    }
+
+    /**
+     * Returns the throughput of the batch.
+     *
+     * @return the queries completed per second.
+     */
+    public double getQueriesPerSecond() {
+        return _elapsedNanos == 0 ? 0 : _results.size() * 1e9 / _elapsedNanos;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d queries in %.3f ms (%.0f queries/s), %d neighborhoods, %d trees", _results.size(), _elapsedNanos / 1e6, getQueriesPerSecond(), _neighborhoods, _trees);
+    }
+}
@@ -0,0 +1,143 @@
+package it.uninsubria.iot.search;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Heuristic search of the best working units. The slots are assigned one at a
+ * time, services with fewer candidates first, and after each slot only the
+ * partial working units with the best estimate are kept. The estimate of a
+ * partial working unit is the average of its known terms or, while it has a
+ * single provider, the average of the highest reputation its candidates can
+ * receive. If the beam is never truncated every working unit is visited and
+ * the result is exact.
+ *
+ * @author Lorenzo Bossi
+ */
+public class BeamSearchSolver implements WorkingUnitSolver {
+
+    private final int _width;
+
+    /**
+     *
+     * @param width the number of partial working units kept at each step.
+     * @throws IllegalArgumentException if width is less than 1.
+     */
+    public BeamSearchSolver(int width) {
+        if (width < 1) {
+            throw new IllegalArgumentException("The width must be at least 1");
+        }
+        _width = width;
+    }
+
+    public int getWidth() {
+        return _width;
+    }
+
+    @Override
+    public void search(ReputationMatrix reputations, Incumbents incumbents) {
+        SearchSpace space = reputations.getSpace();
+        if (space.isEmpty()) {
+            return;
+        }
+        int slots = space.getSlotCount();
+        Integer[] order = new Integer[slots];
+        for (int slot = 0; slot < slots; slot++) {
+            order[slot] = slot;
+        }
+        Arrays.sort(order, Comparator.comparingInt(space::getCandidateCount));
+
+        List<Partial> beam = new ArrayList<>();
+        beam.add(new Partial(slots));
+        for (int depth = 0; depth < slots; depth++) {
+            if (incumbents.shouldStop()) {
+                return;
+            }
+            int slot = order[depth];
+            List<Partial> next = new ArrayList<>(beam.size() * space.getCandidateCount(slot));
+            for (Partial parent : beam) {
+                for (int ci = 0; ci < space.getCandidateCount(slot); ci++) {
+                    next.add(parent.assign(reputations, slot, ci));
+                }
+            }
+            if (next.size() > _width) {
+                next.sort((a, b) -> Double.compare(b.estimate, a.estimate));
+                next = new ArrayList<>(next.subList(0, _width));
+                incumbents.markInexact();
+            }
+            beam = next;
+        }
+        for (Partial p : beam) {
+            double score = reputations.score(p.choice);
+            if (!Double.isNaN(score)) {
+                incumbents.offer(p.choice, score);
+            }
+        }
+    }
+
+    private static class Partial {
+
+        private final int[] choice;
+        private final int[] slots;
+        private final int[] members;
+        private final int depth;
+        private final int memberCount;
+        private final double sum;
+        private final double inMaxSum;
+        private final double estimate;
+
+        private Partial(int slotCount) {
+            choice = new int[slotCount];
+            slots = new int[slotCount];
+            members = new int[slotCount];
+            depth = 0;
+            memberCount = 0;
+            sum = 0;
+            inMaxSum = 0;
+            estimate = 0;
+        }
+
+        private Partial(Partial parent, int slot, int ci, int d, boolean isNew, double sum, double inMaxSum) {
+            choice = parent.choice.clone();
+            choice[slot] = ci;
+            slots = parent.slots.clone();
+            slots[parent.depth] = slot;
+            depth = parent.depth + 1;
+            if (isNew) {
+                members = parent.members.clone();
+                members[parent.memberCount] = d;
+                memberCount = parent.memberCount + 1;
+            } else {
+                members = parent.members;
+                memberCount = parent.memberCount;
+            }
+            this.sum = sum;
+            this.inMaxSum = inMaxSum;
+            estimate = memberCount >= 2 ? sum / ((double) depth * (memberCount - 1)) : inMaxSum / depth;
+        }
+
+        private Partial assign(ReputationMatrix reputations, int slot, int ci) {
+            SearchSpace space = reputations.getSpace();
+            int d = space.getCandidate(slot, ci);
+            double s = sum;
+            boolean isNew = true;
+            for (int i = 0; i < memberCount; i++) {
+                int p = members[i];
+                if (p != d) {
+                    s += reputations.get(slot, ci, p);
+                } else {
+                    isNew = false;
+                }
+            }
+            if (isNew) {
+                for (int i = 0; i < depth; i++) {
+                    int assigned = slots[i];
+                    s += reputations.get(assigned, choice[assigned], d);
+                }
+            }
+            return new Partial(this, slot, ci, d, isNew, s, inMaxSum + reputations.getMaxIncoming(slot, ci));
+        }
+    }
+}
@@ -0,0 +1,171 @@
+package it.uninsubria.iot.search;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * Exact depth first branch and bound search of the best working unit.
+ * <br/>
+ * The reputations between the candidates are read from the matrix. Services with
+ * fewer candidates are assigned first and, within a service, the candidates
+ * which can receive the highest reputation are tried first, so that a good
+ * incumbent is found early. A partial assignment is discarded when an upper
+ * bound of the overall reputation of its completions cannot beat the
+ * threshold of the incumbents. The bound is computed as follows: the terms of the average among
+ * the assigned services are known, the missing ones are at most the highest
+ * reputation any candidate can receive for an unassigned service or, from a
+ * new member, for an assigned one; the number of missing terms depends only
+ * on how many distinct providers the final working unit will have, and the
+ * average is monotone in it, so only the two extremes are checked.
+ *
+ * @author Lorenzo Bossi
+ */
+public class BranchAndBoundSolver implements WorkingUnitSolver {
+
+    /**
+     * Tolerance on the bound, so that rounding errors cannot discard a better
+     * working unit.
+     */
+    private static final double EPSILON = 1e-12;
+
+    @Override
+    public void search(ReputationMatrix reputations, Incumbents incumbents) {
+        if (reputations.getSpace().isEmpty()) {
+            return;
+        }
+        new Search(reputations, incumbents).dfs(0, 0, 0, Double.NEGATIVE_INFINITY);
+    }
+
+    private static class Search {
+
+        private final SearchSpace _space;
+        private final int _slots;
+        private final ReputationMatrix _matrix;
+        private final int[] _order;
+        private final int[][] _candidateOrder;
+        private final double[] _suffixMax;
+
+        private final int[] _choice;
+        private final int[] _multiplicity;
+        private final int[] _members;
+
+        private final Incumbents _incumbents;
+
+        private Search(ReputationMatrix matrix, Incumbents incumbents) {
+            SearchSpace space = matrix.getSpace();
+            _space = space;
+            _matrix = matrix;
+            _incumbents = incumbents;
+            _slots = space.getSlotCount();
+            int providers = space.getProviderCount();
+
+            Integer[] order = new Integer[_slots];
+            for (int slot = 0; slot < _slots; slot++) {
+                order[slot] = slot;
+            }
+            Arrays.sort(order, Comparator.comparingInt(space::getCandidateCount));
+            _order = new int[_slots];
+            _candidateOrder = new int[_slots][];
+            for (int i = 0; i < _slots; i++) {
+                int slot = order[i];
+                _order[i] = slot;
+                Integer[] candidates = new Integer[space.getCandidateCount(slot)];
+                for (int ci = 0; ci < candidates.length; ci++) {
+                    candidates[ci] = ci;
+                }
+                Arrays.sort(candidates, (a, b) -> Double.compare(_matrix.getMaxIncoming(slot, b), _matrix.getMaxIncoming(slot, a)));
+                _candidateOrder[slot] = new int[candidates.length];
+                for (int ci = 0; ci < candidates.length; ci++) {
+                    _candidateOrder[slot][ci] = candidates[ci];
+                }
+            }
+            _suffixMax = new double[_slots + 1];
+            _suffixMax[_slots] = Double.NEGATIVE_INFINITY;
+            for (int i = _slots - 1; i >= 0; i--) {
+                double max = _suffixMax[i + 1];
+                int slot = _order[i];
+                for (int ci = 0; ci < space.getCandidateCount(slot); ci++) {
+                    max = Math.max(max, _matrix.getMaxIncoming(slot, ci));
+                }
+                _suffixMax[i] = max;
+            }
+
+            _choice = new int[_slots];
+            _multiplicity = new int[providers];
+            _members = new int[_slots];
+        }
+
+        /**
+         * Visits the assignments of the slots from the given depth.
+         *
+         * @param depth the number of assigned slots.
+         * @param sum the sum of the terms among the assigned slots.
+         * @param members the number of distinct providers assigned.
+         * @param assignedMax the highest reputation the assigned candidates
+         * can receive.
+         */
+        private void dfs(int depth, double sum, int members, double assignedMax) {
+            if (_incumbents.shouldStop()) {
+                return;
+            }
+            if (depth == _slots) {
+                if (members >= 2) {
+                    _incumbents.offer(_choice, sum / ((double) _slots * (members - 1)));
+                }
+                return;
+            }
+            double maxTerm = Math.max(assignedMax, _suffixMax[depth]);
+            if (bound(depth, sum, members, maxTerm) <= _incumbents.getThreshold() - EPSILON) {
+                return;
+            }
+            int slot = _order[depth];
+            for (int ci : _candidateOrder[slot]) {
+                int d = _space.getCandidate(slot, ci);
+                double s = sum;
+                for (int i = 0; i < members; i++) {
+                    int p = _members[i];
+                    if (p != d) {
+                        s += _matrix.get(slot, ci, p);
+                    }
+                }
+                boolean isNew = _multiplicity[d] == 0;
+                if (isNew) {
+                    for (int i = 0; i < depth; i++) {
+                        int assigned = _order[i];
+                        int aci = _choice[assigned];
+                        if (_space.getCandidate(assigned, aci) != d) {
+                            s += _matrix.get(assigned, aci, d);
+                        }
+                    }
+                    _members[members] = d;
+                }
+                _multiplicity[d]++;
+                _choice[slot] = ci;
+                dfs(depth + 1, s, isNew ? members + 1 : members, Math.max(assignedMax, _matrix.getMaxIncoming(slot, ci)));
+                _multiplicity[d]--;
+            }
+        }
+
+        /**
+         * Upper bound of the overall reputation of any completion.
+         */
+        private double bound(int depth, double sum, int members, double maxTerm) {
+            int minMembers = Math.max(members, 2);
+            int maxMembers = members + _slots - depth;
+            if (minMembers > maxMembers) {
+                return Double.NEGATIVE_INFINITY;
+            }
+            long knownTerms = (long) depth * Math.max(members - 1, 0);
+            return Math.max(average(sum, knownTerms, minMembers, maxTerm), average(sum, knownTerms, maxMembers, maxTerm));
+        }
+
+        private double average(double sum, long knownTerms, int members, double maxTerm) {
+            long terms = (long) _slots * (members - 1);
+            long missing = terms - knownTerms;
+            if (missing == 0) {
+                return sum / terms;
+            }
+            return (sum + missing * maxTerm) / terms;
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package it.uninsubria.iot.search;
+
+/**
+ * Scores every working unit of the space. The working units are visited in
+ * the order of the slots of the {@link SearchSpace}, the first slot changing
+ * fastest.
+ *
+ * @author Lorenzo Bossi
+ */
+public class ExhaustiveSolver implements WorkingUnitSolver {
+
+    @Override
+    public void search(ReputationMatrix reputations, Incumbents incumbents) {
+        SearchSpace space = reputations.getSpace();
+        if (space.isEmpty()) {
+            return;
+        }
+        int slots = space.getSlotCount();
+        int[] choice = new int[slots];
+        while (!incumbents.shouldStop()) {
+            double score = reputations.score(choice);
+            if (!Double.isNaN(score)) {
+                incumbents.offer(choice, score);
+            }
+            int slot = 0;
+            while (slot < slots && ++choice[slot] == space.getCandidateCount(slot)) {
+                choice[slot] = 0;
+                slot++;
+            }
+            if (slot == slots) {
+                break;
+            }
+        }
+    }
+}
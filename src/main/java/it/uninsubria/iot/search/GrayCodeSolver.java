@@ -0,0 +1,64 @@
+package it.uninsubria.iot.search;
+
+/**
+ * Scores every working unit of the space, visiting them in reflected
+ * mixed-radix Gray code order: consecutive working units differ in a single
+ * slot, by one position, so every score is updated by an
+ * {@link IncrementalScorer} instead of being recomputed.
+ * <br/>
+ * The order differs from {@link ExhaustiveSolver}, so when many working units
+ * have the same score a different one may be returned.
+ *
+ * @author Lorenzo Bossi
+ */
+public class GrayCodeSolver implements WorkingUnitSolver {
+
+    @Override
+    public void search(ReputationMatrix reputations, Incumbents incumbents) {
+        SearchSpace space = reputations.getSpace();
+        if (space.isEmpty()) {
+            return;
+        }
+        IncrementalScorer scorer = new IncrementalScorer(reputations);
+
+        // only the slots with more than one candidate change
+        int slots = space.getSlotCount();
+        int[] wheel = new int[slots];
+        int n = 0;
+        for (int slot = 0; slot < slots; slot++) {
+            if (space.getCandidateCount(slot) > 1) {
+                wheel[n++] = slot;
+            }
+        }
+
+        // loopless generation, Knuth TAOCP 7.2.1.1 algorithm H
+        int[] digit = new int[n];
+        int[] direction = new int[n];
+        int[] focus = new int[n + 1];
+        for (int j = 0; j <= n; j++) {
+            focus[j] = j;
+            if (j < n) {
+                direction[j] = 1;
+            }
+        }
+        while (!incumbents.shouldStop()) {
+            double score = scorer.score();
+            if (!Double.isNaN(score)) {
+                incumbents.offer(scorer.getChoice(), score);
+            }
+            int j = focus[0];
+            focus[0] = 0;
+            if (j == n) {
+                break;
+            }
+            digit[j] += direction[j];
+            int slot = wheel[j];
+            scorer.set(slot, digit[j]);
+            if (digit[j] == 0 || digit[j] == space.getCandidateCount(slot) - 1) {
+                direction[j] = -direction[j];
+                focus[j] = focus[j + 1];
+                focus[j + 1] = j + 1;
+            }
+        }
+    }
+}
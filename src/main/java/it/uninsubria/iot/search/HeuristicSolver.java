@@ -0,0 +1,34 @@
+package it.uninsubria.iot.search;
+
+import it.uninsubria.iot.utils.CustomRandom;
+
+/**
+ * Heuristic search for large working plans: a {@link BeamSearchSolver} builds
+ * good working units, then an {@link AnnealingSolver} refines the best one.
+ *
+ * @author Lorenzo Bossi
+ */
+public class HeuristicSolver implements WorkingUnitSolver {
+
+    private final BeamSearchSolver _beam;
+    private final AnnealingSolver _annealing;
+
+    /**
+     *
+     * @param width the width of the beam.
+     * @param rnd the random number generator of the annealing.
+     * @param iterations the number of annealing moves.
+     */
+    public HeuristicSolver(int width, CustomRandom rnd, int iterations) {
+        _beam = new BeamSearchSolver(width);
+        _annealing = new AnnealingSolver(rnd, iterations);
+    }
+
+    @Override
+    public void search(ReputationMatrix reputations, Incumbents incumbents) {
+        _beam.search(reputations, incumbents);
+        if (!incumbents.isComplete()) {
+            _annealing.search(reputations, incumbents);
+        }
+    }
+}
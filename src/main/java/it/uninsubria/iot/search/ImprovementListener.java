@@ -0,0 +1,22 @@
+package it.uninsubria.iot.search;
+
+import it.uninsubria.iot.entities.WorkingUnit;
+
+/**
+ * Receives the working units which improve the best one found so far, while
+ * the search is running.
+ *
+ * @author Lorenzo Bossi
+ */
+@FunctionalInterface
+public interface ImprovementListener {
+
+    /**
+     * Called, from the searching thread, every time a working unit better
+     * than all the previous ones is found.
+     *
+     * @param workingUnit the new best working unit.
+     * @param reputation its overall reputation.
+     */
+    void improved(WorkingUnit workingUnit, double reputation);
+}
@@ -0,0 +1,179 @@
+package it.uninsubria.iot.search;
+
+/**
+ * Keeps the overall reputation of a working unit while its slots are changed
+ * one at a time. The sum of the terms of the average and the multiplicity of
+ * every provider are maintained, so changing a slot costs O(members + slots)
+ * instead of the O(members · slots) of a full evaluation: the terms of the
+ * changed slot are replaced and, only if a provider joins or leaves the
+ * working unit, the terms it gives are added or removed. To bound the
+ * rounding errors, the sum is recomputed from scratch every
+ * {@link #RESYNC_INTERVAL} changes.
+ *
+ * @author Lorenzo Bossi
+ */
+public class IncrementalScorer {
+
+    /**
+     * The number of changes after which the sum is recomputed.
+     */
+    public static final int RESYNC_INTERVAL = 1024;
+
+    private final ReputationMatrix _matrix;
+    private final SearchSpace _space;
+    private final int _slots;
+
+    private final int[] _choice;
+    private final int[] _multiplicity;
+    private final int[] _members;
+    /**
+     * The position of every member in _members.
+     */
+    private final int[] _position;
+    private int _memberCount;
+    private double _sum;
+    private int _changes;
+
+    /**
+     * Starts from the working unit made of the first candidate of every slot.
+     *
+     * @param matrix the reputations between the providers of the space.
+     * @throws IllegalArgumentException if the space is empty.
+     */
+    public IncrementalScorer(ReputationMatrix matrix) {
+        _matrix = matrix;
+        _space = matrix.getSpace();
+        if (_space.isEmpty()) {
+            throw new IllegalArgumentException("The search space is empty");
+        }
+        _slots = _space.getSlotCount();
+        _choice = new int[_slots];
+        _multiplicity = new int[_space.getProviderCount()];
+        _members = new int[_slots];
+        _position = new int[_space.getProviderCount()];
+        for (int slot = 0; slot < _slots; slot++) {
+            join(_space.getCandidate(slot, 0));
+        }
+        recompute();
+    }
+
+    /**
+     * Returns the current working unit. The array is owned by the scorer and
+     * must not be modified.
+     *
+     * @return the position of the chosen candidate for each slot.
+     */
+    public int[] getChoice() {
+        return _choice;
+    }
+
+    public int getMemberCount() {
+        return _memberCount;
+    }
+
+    /**
+     * Returns the overall reputation of the current working unit.
+     *
+     * @return the overall reputation or NaN if the working unit has less than
+     * two providers.
+     */
+    public double score() {
+        if (_memberCount <= 1) {
+            return Double.NaN;
+        }
+        return _sum / ((double) _slots * (_memberCount - 1));
+    }
+
+    /**
+     * Assigns another candidate to a slot.
+     *
+     * @param slot the slot.
+     * @param candidate the position of the new candidate in the slot.
+     */
+    public void set(int slot, int candidate) {
+        int old = _choice[slot];
+        if (old == candidate) {
+            return;
+        }
+        int a = _space.getCandidate(slot, old);
+        int b = _space.getCandidate(slot, candidate);
+
+        _sum -= incoming(slot, old, a);
+        if (--_multiplicity[a] == 0) {
+            leave(a);
+            _sum -= outgoing(a, slot);
+        }
+        _choice[slot] = candidate;
+        if (_multiplicity[b] == 0) {
+            _sum += outgoing(b, slot);
+            join(b);
+        } else {
+            _multiplicity[b]++;
+        }
+        _sum += incoming(slot, candidate, b);
+
+        if (++_changes == RESYNC_INTERVAL) {
+            recompute();
+        }
+    }
+
+    /**
+     * Recomputes the sum from scratch.
+     */
+    public void recompute() {
+        double sum = 0;
+        for (int i = 0; i < _memberCount; i++) {
+            int source = _members[i];
+            for (int slot = 0; slot < _slots; slot++) {
+                int ci = _choice[slot];
+                if (_space.getCandidate(slot, ci) != source) {
+                    sum += _matrix.get(slot, ci, source);
+                }
+            }
+        }
+        _sum = sum;
+        _changes = 0;
+    }
+
+    /**
+     * The terms the members give to the candidate of a slot.
+     */
+    private double incoming(int slot, int ci, int dest) {
+        double sum = 0;
+        for (int i = 0; i < _memberCount; i++) {
+            int p = _members[i];
+            if (p != dest) {
+                sum += _matrix.get(slot, ci, p);
+            }
+        }
+        return sum;
+    }
+
+    /**
+     * The terms a provider which is not assigned to any other slot gives to
+     * the slots but the skipped one.
+     */
+    private double outgoing(int source, int skip) {
+        double sum = 0;
+        for (int slot = 0; slot < _slots; slot++) {
+            if (slot != skip) {
+                sum += _matrix.get(slot, _choice[slot], source);
+            }
+        }
+        return sum;
+    }
+
+    private void join(int p) {
+        if (_multiplicity[p]++ == 0) {
+            _position[p] = _memberCount;
+            _members[_memberCount++] = p;
+        }
+    }
+
+    private void leave(int p) {
+        int last = _members[--_memberCount];
+        int pos = _position[p];
+        _members[pos] = last;
+        _position[last] = pos;
+    }
+}
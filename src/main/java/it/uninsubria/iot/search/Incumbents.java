@@ -0,0 +1,297 @@
+package it.uninsubria.iot.search;
+
+import it.uninsubria.iot.entities.WorkingUnit;
+import it.uninsubria.iot.utils.Pair;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+/**
+ * The k best working units found so far, kept in a bounded min heap. The
+ * score of the worst of them is the threshold a new working unit has to beat
+ * to enter the heap, so solvers can use it to prune the search. The
+ * incumbents also carry the {@link SearchBudget} of the search, which solvers
+ * poll through {@link #shouldStop()}, and notify an
+ * {@link ImprovementListener} when a new best working unit is found.
+ * <br/>
+ * A working unit is kept at most once: heuristic solvers visit the same
+ * assignment many times, and it is offered again every time.
+ *
+ * @author Lorenzo Bossi
+ */
+public class Incumbents {
+
+    /**
+     * How many calls of {@link #shouldStop()} share a single look at the
+     * budget, it must be a power of two.
+     */
+    private static final int CHECK_INTERVAL = 256;
+
+    private final int _k;
+    private final PriorityQueue<Entry> _heap;
+    private final Set<Choice> _kept;
+    private long _sequence = 0;
+
+    private final SearchBudget _budget;
+    private int _checks = 0;
+    private boolean _stopped = false;
+    private boolean _exact = true;
+    private long _evaluations = 0;
+    private double _best = Double.NEGATIVE_INFINITY;
+    private SearchSpace _space;
+    private ImprovementListener _listener;
+
+    /**
+     * Creates incumbents for a search without limits.
+     *
+     * @param k the number of working units to keep.
+     * @throws IllegalArgumentException if k is less than 1.
+     */
+    public Incumbents(int k) {
+        this(k, null);
+    }
+
+    /**
+     *
+     * @param k the number of working units to keep.
+     * @param budget the budget of the search, null if the search has no
+     * limits.
+     * @throws IllegalArgumentException if k is less than 1.
+     */
+    public Incumbents(int k, SearchBudget budget) {
+        if (k < 1) {
+            throw new IllegalArgumentException("k must be at least 1");
+        }
+        _k = k;
+        _heap = new PriorityQueue<>(k);
+        _kept = new HashSet<>();
+        _budget = budget;
+    }
+
+    /**
+     * Sets the listener notified every time the best working unit changes.
+     *
+     * @param space the space the assignments refer to, used to build the
+     * working units.
+     * @param listener the listener, null to remove it.
+     */
+    public void setImprovementListener(SearchSpace space, ImprovementListener listener) {
+        _space = space;
+        _listener = listener;
+    }
+
+    public SearchBudget getBudget() {
+        return _budget;
+    }
+
+    /**
+     * Tells the solver whether to stop. The budget is actually looked at once
+     * every few calls, so the method can be called at every step of a
+     * search; once it returns true it keeps returning true.
+     *
+     * @return true if the budget is exhausted.
+     */
+    public boolean shouldStop() {
+        if (_stopped) {
+            return true;
+        }
+        if (_budget == null || (++_checks & (CHECK_INTERVAL - 1)) != 0) {
+            return false;
+        }
+        _stopped = _budget.isExhausted();
+        return _stopped;
+    }
+
+    /**
+     * Records that the budget ended before the solver could run, for
+     * instance while the reputations of the space were computed.
+     */
+    public void markStopped() {
+        _stopped = true;
+    }
+
+    /**
+     * Records that a solver skipped some working units without proving that
+     * they cannot beat the incumbents, as heuristic solvers do.
+     */
+    public void markInexact() {
+        _exact = false;
+    }
+
+    /**
+     * Tells if the incumbents are proven to be the best working units: the
+     * search was not stopped by the budget and no solver marked it as inexact.
+     *
+     * @return true if no better working unit exists.
+     */
+    public boolean isComplete() {
+        return !_stopped && _exact;
+    }
+
+    /**
+     * Returns how many working units have been offered.
+     *
+     * @return the number of complete working units evaluated.
+     */
+    public long getEvaluations() {
+        return _evaluations;
+    }
+
+    public int getK() {
+        return _k;
+    }
+
+    public int size() {
+        return _heap.size();
+    }
+
+    public boolean isEmpty() {
+        return _heap.isEmpty();
+    }
+
+    /**
+     * Returns the score a working unit has to beat to be kept: the k-th best
+     * score if k working units have been found, otherwise
+     * {@link WorkingUnitSolver#MIN_REPUTATION}.
+     *
+     * @return the threshold.
+     */
+    public double getThreshold() {
+        if (_heap.size() < _k) {
+            return WorkingUnitSolver.MIN_REPUTATION;
+        }
+        return _heap.peek().score;
+    }
+
+    /**
+     * Offers an evaluated working unit. It is kept only if its score is
+     * greater than the threshold and it is not kept already, in which case
+     * the worst one is dropped if the heap is full.
+     *
+     * @param choice the working unit, the array is copied if it is kept.
+     * @param score the overall reputation.
+     * @return true if the working unit is kept.
+     */
+    public boolean offer(int[] choice, double score) {
+        _evaluations++;
+        if (!(score > getThreshold())) {
+            return false;
+        }
+        Choice kept = new Choice(choice.clone());
+        if (!_kept.add(kept)) {
+            return false;
+        }
+        if (_heap.size() == _k) {
+            _kept.remove(new Choice(_heap.poll().choice));
+        }
+        _heap.add(new Entry(kept.choice, score, _sequence++));
+        if (score > _best) {
+            _best = score;
+            if (_listener != null) {
+                _listener.improved(_space.toWorkingUnit(choice), score);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Offers all the working units kept by other incumbents, best first, so
+     * that the working units with the same score keep their relative order.
+     * If the other search was stopped, this one is marked as stopped too.
+     *
+     * @param other the incumbents to merge.
+     */
+    public void merge(Incumbents other) {
+        _stopped |= other._stopped;
+        _exact &= other._exact;
+        long evaluations = _evaluations + other._evaluations;
+        List<Entry> entries = new ArrayList<>(other._heap);
+        Collections.sort(entries, Collections.reverseOrder());
+        for (Entry e : entries) {
+            if (!(e.score > getThreshold())) {
+                break;
+            }
+            offer(e.choice, e.score);
+        }
+        _evaluations = evaluations;
+    }
+
+    /**
+     * Returns the kept working units, best first. Working units with the same
+     * score are in the order they were found.
+     *
+     * @return the assignments with their scores.
+     */
+    public List<Pair<int[], Double>> getChoices() {
+        List<Entry> entries = new ArrayList<>(_heap);
+        Collections.sort(entries, Collections.reverseOrder());
+        List<Pair<int[], Double>> choices = new ArrayList<>(entries.size());
+        for (Entry e : entries) {
+            choices.add(new Pair<>(e.choice.clone(), e.score));
+        }
+        return choices;
+    }
+
+    /**
+     * Builds the kept working units, best first.
+     *
+     * @param space the space the assignments refer to.
+     * @return the working units with their overall reputation.
+     */
+    public List<Pair<WorkingUnit, Double>> getWorkingUnits(SearchSpace space) {
+        List<Pair<WorkingUnit, Double>> units = new ArrayList<>(_heap.size());
+        for (Pair<int[], Double> c : getChoices()) {
+            units.add(new Pair<>(space.toWorkingUnit(c.first), c.second));
+        }
+        return units;
+    }
+
+    /**
+     * An assignment compared by content, to find the kept ones.
+     */
+    private static class Choice {
+
+        private final int[] choice;
+
+        private Choice(int[] choice) {
+            this.choice = choice;
+        }
+
+        @Override
+        public int hashCode() {
+            return Arrays.hashCode(choice);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof Choice && Arrays.equals(choice, ((Choice) obj).choice);
+        }
+    }
+
+    private static class Entry implements Comparable<Entry> {
+
+        private final int[] choice;
+        private final double score;
+        private final long sequence;
+
+        private Entry(int[] choice, double score, long sequence) {
+            this.choice = choice;
+            this.score = score;
+            this.sequence = sequence;
+        }
+
+        /**
+         * The worst entry is the smallest: lower score or, with the same
+         * score, found later.
+         */
+        @Override
+        public int compareTo(Entry o) {
+            int c = Double.compare(score, o.score);
+            return c != 0 ? c : Long.compare(o.sequence, sequence);
+        }
+    }
+}
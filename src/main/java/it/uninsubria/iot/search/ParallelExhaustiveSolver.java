@@ -0,0 +1,105 @@
+package it.uninsubria.iot.search;
+
+import it.uninsubria.iot.utils.MixedRadixSpliterator;
+import java.util.Spliterator;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Scores every working unit of the space using many threads. The working
+ * units are numbered in the order of {@link ExhaustiveSolver}, the range of
+ * numbers is split among fork-join tasks and every task keeps its own best
+ * working units, then the partial results are merged. The tasks only read the
+ * reputation matrix, so the reputation function does not need to be thread
+ * safe. The result is the same of {@link ExhaustiveSolver}, ties included.
+ * Since the tasks keep their own incumbents, an improvement listener is
+ * notified only when the partial results are merged at the end.
+ *
+ * @author Lorenzo Bossi
+ */
+public class ParallelExhaustiveSolver implements WorkingUnitSolver {
+
+    /**
+     * The default number of working units below which a range is not split.
+     */
+    public static final int DEFAULT_GRAIN = 4096;
+
+    private final ForkJoinPool _pool;
+    private final int _grain;
+
+    /**
+     * Creates a solver which runs in the common pool.
+     */
+    public ParallelExhaustiveSolver() {
+        this(ForkJoinPool.commonPool(), DEFAULT_GRAIN);
+    }
+
+    /**
+     *
+     * @param pool the pool the tasks are run in.
+     * @param grain the number of working units below which a range is not
+     * split.
+     * @throws IllegalArgumentException if grain is less than 1.
+     */
+    public ParallelExhaustiveSolver(ForkJoinPool pool, int grain) {
+        if (grain < 1) {
+            throw new IllegalArgumentException("The grain must be at least 1");
+        }
+        _pool = pool;
+        _grain = grain;
+    }
+
+    @Override
+    public void search(ReputationMatrix reputations, Incumbents incumbents) {
+        SearchSpace space = reputations.getSpace();
+        if (space.isEmpty()) {
+            return;
+        }
+        int[] radices = new int[space.getSlotCount()];
+        for (int slot = 0; slot < radices.length; slot++) {
+            radices[slot] = space.getCandidateCount(slot);
+        }
+        Incumbents best = _pool.invoke(new Range(reputations, new MixedRadixSpliterator(radices), incumbents.getK(), incumbents.getBudget()));
+        incumbents.merge(best);
+    }
+
+    private class Range extends RecursiveTask<Incumbents> {
+
+        private final ReputationMatrix _matrix;
+        private final Spliterator<int[]> _choices;
+        private final int _k;
+        private final SearchBudget _budget;
+
+        private Range(ReputationMatrix matrix, Spliterator<int[]> choices, int k, SearchBudget budget) {
+            _matrix = matrix;
+            _choices = choices;
+            _k = k;
+            _budget = budget;
+        }
+
+        @Override
+        protected Incumbents compute() {
+            if (_choices.estimateSize() > _grain) {
+                Spliterator<int[]> prefix = _choices.trySplit();
+                if (prefix != null) {
+                    Range left = new Range(_matrix, prefix, _k, _budget);
+                    left.fork();
+                    Incumbents right = compute();
+                    Incumbents result = left.join();
+                    result.merge(right);
+                    return result;
+                }
+            }
+            Incumbents result = new Incumbents(_k, _budget);
+            while (!result.shouldStop() && _choices.tryAdvance(choice -> {
+                double score = _matrix.score(choice);
+                if (!Double.isNaN(score)) {
+                    result.offer(choice, score);
+                }
+            })) {
+                // keep scoring
+            }
+            return result;
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package it.uninsubria.iot.search;
+
+import it.uninsubria.iot.entities.Provider;
+import it.uninsubria.iot.entities.Service;
+import java.util.List;
+
+/**
+ * Gives the reputation of a provider from the point of view of another one.
+ *
+ * @author Lorenzo Bossi
+ */
+@FunctionalInterface
+public interface ReputationFunction {
+
+    /**
+     * Get the reputation.
+     *
+     * @param from the observer.
+     * @param to the provider to compute the reputation.
+     * @param service the service we are considering.
+     * @return the reputation [-1,1].
+     */
+    double getReputation(Provider from, Provider to, Service service);
+
+    /**
+     * Get the reputation of many providers from the point of view of the
+     * same observer.
+     *
+     * @param from the observer.
+     * @param to the providers to compute the reputation.
+     * @param service the service we are considering.
+     * @return the reputations [-1,1] in the same order of the targets.
+     */
+    default double[] getReputations(Provider from, List<Provider> to, Service service) {
+        double[] reputations = new double[to.size()];
+        for (int i = 0; i < reputations.length; i++) {
+            reputations[i] = getReputation(from, to.get(i), service);
+        }
+        return reputations;
+    }
+
+    /**
+     * Tells if the function can be called by many threads at the same time,
+     * in which case the reputations of a query are computed in parallel.
+     *
+     * @return false, unless overridden.
+     */
+    default boolean isThreadSafe() {
+        return false;
+    }
+}
@@ -0,0 +1,223 @@
+package it.uninsubria.iot.search;
+
+import it.uninsubria.iot.entities.Provider;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+/**
+ * The reputations between the providers of a search space, computed once per
+ * query. Every distinct provider of the space gives a reputation to every
+ * candidate of every slot, and the values are stored in a dense primitive
+ * array with a row per (slot, candidate), so scoring a working unit is made of
+ * array lookups only. The rows are filled in parallel when the reputation
+ * function is thread safe. Since the matrix is immutable, working units can
+ * then be scored by many threads even if the reputation function is not
+ * thread safe.
+ * <br/>
+ * Every row costs a shortest path search, so on large plans the matrix is
+ * most of the cost of a query; the build checks the {@link SearchBudget}
+ * before every search and leaves the matrix incomplete once it is exhausted.
+ *
+ * @author Lorenzo Bossi
+ */
+public class ReputationMatrix {
+
+    private final SearchSpace _space;
+    private final int _providers;
+    /**
+     * The row of the first candidate of every slot.
+     */
+    private final int[] _firstRow;
+    /**
+     * [row * providers + provider] the reputation the provider gives to the
+     * candidate of the row for the service of its slot.
+     */
+    private final double[] _reputation;
+    /**
+     * [row] the highest reputation the candidate can receive from another
+     * provider.
+     */
+    private final double[] _inMax;
+    private final boolean _complete;
+
+    /**
+     * Computes the reputation every provider of the space gives to every
+     * candidate of every slot.
+     *
+     * @param space the search space.
+     * @param reputation the reputation function.
+     * @throws IllegalArgumentException if the matrix would have more than
+     * Integer.MAX_VALUE cells.
+     */
+    public ReputationMatrix(SearchSpace space, ReputationFunction reputation) {
+        this(space, reputation, null);
+    }
+
+    /**
+     * Computes the reputation every provider of the space gives to every
+     * candidate of every slot, until the budget is exhausted.
+     *
+     * @param space the search space.
+     * @param reputation the reputation function.
+     * @param budget checked before computing every row, null for no limits.
+     * @throws IllegalArgumentException if the matrix would have more than
+     * Integer.MAX_VALUE cells.
+     */
+    public ReputationMatrix(SearchSpace space, ReputationFunction reputation, SearchBudget budget) {
+        _space = space;
+        int slots = space.getSlotCount();
+        _providers = space.getProviderCount();
+        _firstRow = new int[slots + 1];
+        for (int slot = 0; slot < slots; slot++) {
+            _firstRow[slot + 1] = _firstRow[slot] + space.getCandidateCount(slot);
+        }
+        long cells = (long) _firstRow[slots] * _providers;
+        if (cells > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("The search space is too large: " + cells + " reputations");
+        }
+        _reputation = new double[(int) cells];
+
+        IntStream tasks = IntStream.range(0, slots * _providers);
+        if (reputation.isThreadSafe()) {
+            tasks = tasks.parallel();
+        }
+        AtomicInteger skipped = new AtomicInteger();
+        tasks.forEach(task -> {
+            if (budget != null && budget.isExhausted()) {
+                skipped.incrementAndGet();
+            } else {
+                fill(task / _providers, task % _providers, reputation);
+            }
+        });
+        _complete = skipped.get() == 0;
+
+        _inMax = new double[_firstRow[slots]];
+        Arrays.fill(_inMax, Double.NEGATIVE_INFINITY);
+        for (int slot = 0; slot < slots; slot++) {
+            for (int row = _firstRow[slot]; row < _firstRow[slot + 1]; row++) {
+                int candidate = space.getCandidate(slot, row - _firstRow[slot]);
+                int base = row * _providers;
+                for (int p = 0; p < _providers; p++) {
+                    if (p != candidate) {
+                        _inMax[row] = Math.max(_inMax[row], _reputation[base + p]);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Fills the column of a provider for the candidates of a slot.
+     */
+    private void fill(int slot, int provider, ReputationFunction reputation) {
+        List<Provider> targets = _space.getCandidates(slot);
+        double[] rep = reputation.getReputations(_space.getProvider(provider), targets, _space.getService(slot));
+        for (int ci = 0; ci < rep.length; ci++) {
+            _reputation[(_firstRow[slot] + ci) * _providers + provider] = rep[ci];
+        }
+    }
+
+    public SearchSpace getSpace() {
+        return _space;
+    }
+
+    /**
+     * Tells if all the reputations have been computed. The values of an
+     * incomplete matrix, stopped by the budget, must not be used.
+     *
+     * @return false if the budget ended before the matrix was filled.
+     */
+    public boolean isComplete() {
+        return _complete;
+    }
+
+    /**
+     * Returns the reputation a provider gives to a candidate.
+     *
+     * @param slot the slot.
+     * @param candidate the position of the candidate in the slot.
+     * @param provider the index of the provider in the space.
+     * @return the reputation.
+     */
+    public double get(int slot, int candidate, int provider) {
+        return _reputation[(_firstRow[slot] + candidate) * _providers + provider];
+    }
+
+    /**
+     * Returns the highest reputation a candidate can receive from another
+     * provider of the space.
+     *
+     * @param slot the slot.
+     * @param candidate the position of the candidate in the slot.
+     * @return the maximum reputation or negative infinity if there are no
+     * other providers.
+     */
+    public double getMaxIncoming(int slot, int candidate) {
+        return _inMax[_firstRow[slot] + candidate];
+    }
+
+    /**
+     * Returns an upper bound of the overall reputation of any working unit of
+     * the space: an average cannot exceed its largest term.
+     *
+     * @return the highest reputation a candidate can receive from another
+     * provider, negative infinity if there is no such pair.
+     */
+    public double getUpperBound() {
+        double max = Double.NEGATIVE_INFINITY;
+        for (double v : _inMax) {
+            max = Math.max(max, v);
+        }
+        return max;
+    }
+
+    /**
+     * Computes the overall reputation of a working unit like
+     * {@link SearchSpace#score(int[], ReputationFunction)}, with the same
+     * order of the terms, without calling the reputation function.
+     *
+     * @param choice the position of the chosen candidate for each slot.
+     * @return the overall reputation or NaN if the working unit has less than
+     * two providers.
+     */
+    public double score(int[] choice) {
+        int slots = choice.length;
+        int[] members = new int[slots];
+        int m = 0;
+        for (int slot = 0; slot < slots; slot++) {
+            int p = _space.getCandidate(slot, choice[slot]);
+            boolean found = false;
+            for (int i = 0; i < m && !found; i++) {
+                found = members[i] == p;
+            }
+            if (!found) {
+                members[m++] = p;
+            }
+        }
+        if (m <= 1) {
+            return Double.NaN;
+        }
+        double sum = 0;
+        for (int i = 0; i < m; i++) {
+            int source = members[i];
+            for (int slot = 0; slot < slots; slot++) {
+                int ci = choice[slot];
+                if (_space.getCandidate(slot, ci) != source) {
+                    sum += _reputation[(_firstRow[slot] + ci) * _providers + source];
+                }
+            }
+        }
+        return sum / ((double) slots * (m - 1));
+    }
+
+    /**
+     * Estimates the memory used by the matrix.
+     *
+     * @return the estimated size in bytes.
+     */
+    public long estimateBytes() {
+        return 8L * _reputation.length + 8L * _inMax.length + 4L * _firstRow.length;
+    }
+}
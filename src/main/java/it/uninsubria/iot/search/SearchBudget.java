@@ -0,0 +1,79 @@
+package it.uninsubria.iot.search;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Limits the time a solver can spend looking for working units. A budget can
+ * have a deadline and can be cancelled by any thread; the solvers check it
+ * periodically and return the best working units found so far once it is
+ * exhausted.
+ *
+ * @author Lorenzo Bossi
+ */
+public class SearchBudget {
+
+    private final boolean _timed;
+    private final long _deadline;
+    private volatile boolean _cancelled = false;
+
+    /**
+     * Creates a budget without a deadline, which ends only if it is
+     * cancelled.
+     */
+    public SearchBudget() {
+        _timed = false;
+        _deadline = 0;
+    }
+
+    /**
+     * Creates a budget which ends after the given time from now.
+     *
+     * @param timeout the time budget.
+     * @param unit the unit of the timeout.
+     * @throws IllegalArgumentException if the timeout is negative.
+     */
+    public SearchBudget(long timeout, TimeUnit unit) {
+        if (timeout < 0) {
+            throw new IllegalArgumentException("The timeout cannot be negative");
+        }
+        _timed = true;
+        _deadline = System.nanoTime() + unit.toNanos(timeout);
+    }
+
+    /**
+     * Ends the budget. The search stops as soon as the solver checks it.
+     */
+    public void cancel() {
+        _cancelled = true;
+    }
+
+    public boolean isCancelled() {
+        return _cancelled;
+    }
+
+    /**
+     * Checks if the search has to stop.
+     *
+     * @return true if the budget has been cancelled or the deadline has
+     * passed.
+     */
+    public boolean isExhausted() {
+        return _cancelled || (_timed && System.nanoTime() - _deadline >= 0);
+    }
+
+    /**
+     * Returns the time left before the deadline.
+     *
+     * @return the remaining nanoseconds, 0 if the budget is exhausted,
+     * Long.MAX_VALUE if there is no deadline.
+     */
+    public long getRemainingNanos() {
+        if (_cancelled) {
+            return 0;
+        }
+        if (!_timed) {
+            return Long.MAX_VALUE;
+        }
+        return Math.max(0, _deadline - System.nanoTime());
+    }
+}
@@ -0,0 +1,114 @@
+package it.uninsubria.iot.search;
+
+import it.uninsubria.iot.entities.WorkingUnit;
+import it.uninsubria.iot.utils.Pair;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The outcome of a working unit search which may have been stopped before
+ * its end.
+ *
+ * @author Lorenzo Bossi
+ */
+public class SearchResult {
+
+    private final List<Pair<WorkingUnit, Double>> _workingUnits;
+    private final boolean _optimal;
+    private final long _elapsedNanos;
+    private final long _evaluations;
+    private final double _upperBound;
+
+    /**
+     *
+     * @param workingUnits the working units found with their overall
+     * reputation, best first.
+     * @param optimal true if the search proved they are the best ones.
+     * @param elapsedNanos the duration of the search.
+     * @param evaluations the number of working units evaluated.
+     * @param upperBound an upper bound of the overall reputation of any
+     * working unit, NaN if unknown.
+     */
+    public SearchResult(List<Pair<WorkingUnit, Double>> workingUnits, boolean optimal, long elapsedNanos, long evaluations, double upperBound) {
+        _workingUnits = Collections.unmodifiableList(workingUnits);
+        _optimal = optimal;
+        _elapsedNanos = elapsedNanos;
+        _evaluations = evaluations;
+        _upperBound = upperBound;
+    }
+
+    /**
+     * Returns the best working unit found.
+     *
+     * @return a pair with the working unit and its overall reputation or null
+     * if no working unit has been found.
+     */
+    public Pair<WorkingUnit, Double> getBest() {
+        return _workingUnits.isEmpty() ? null : _workingUnits.get(0);
+    }
+
+    /**
+     * Returns all the working units found.
+     *
+     * @return a readonly list, best first.
+     */
+    public List<Pair<WorkingUnit, Double>> getWorkingUnits() {
+        return _workingUnits;
+    }
+
+    /**
+     * Tells if the search space has been completely explored, so no better
+     * working unit exists. It is false when the budget ended first.
+     *
+     * @return true if the working units are proven to be the best ones.
+     */
+    public boolean isOptimal() {
+        return _optimal;
+    }
+
+    public long getElapsedNanos() {
+        return _elapsedNanos;
+    }
+
+    public long getEvaluations() {
+        return _evaluations;
+    }
+
+    /**
+     * Returns the evaluation throughput of the search.
+     *
+     * @return the working units evaluated per second.
+     */
+    public double getEvaluationsPerSecond() {
+        return _elapsedNanos == 0 ? 0 : _evaluations * 1e9 / _elapsedNanos;
+    }
+
+    /**
+     * Returns an upper bound of the overall reputation of any working unit
+     * of the query, against which the quality of a heuristic result can be
+     * judged.
+     *
+     * @return the upper bound or NaN if unknown.
+     */
+    public double getUpperBound() {
+        return _upperBound;
+    }
+
+    /**
+     * Returns how far the best working unit found may be from the optimum.
+     *
+     * @return 0 if the result is optimal, the difference between the upper
+     * bound and the best reputation otherwise, NaN if nothing was found.
+     */
+    public double getGap() {
+        if (_workingUnits.isEmpty()) {
+            return Double.NaN;
+        }
+        return _optimal ? 0 : Math.max(0, _upperBound - getBest().second);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d working units in %.3f ms, %.0f evaluations/s, gap %.4f%s", _workingUnits.size(), _elapsedNanos / 1e6, getEvaluationsPerSecond(), getGap(), _optimal ? " (optimal)" : "");
+    }
+}
@@ -0,0 +1,200 @@
+package it.uninsubria.iot.search;
+
+import it.uninsubria.iot.entities.Provider;
+import it.uninsubria.iot.entities.Service;
+import it.uninsubria.iot.entities.WorkingUnit;
+import it.uninsubria.iot.utils.ProvidersCollector;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The working units that can be built from the providers collected for a
+ * working plan. Every service of the plan is a slot, and a working unit is an
+ * assignment of one of its candidates to each slot, represented as an int
+ * array with the position of the chosen candidate for each slot. The
+ * candidates of all the slots are mapped to dense provider indexes, so a
+ * provider which is candidate for many services has always the same index.
+ *
+ * @author Lorenzo Bossi
+ */
+public class SearchSpace {
+
+    private final Service[] _services;
+    private final Provider[] _providers;
+    private final int[][] _candidates;
+
+    /**
+     * Builds the space from the collected providers.
+     *
+     * @param collector the providers collected for a working plan.
+     */
+    public SearchSpace(ProvidersCollector collector) {
+        Set<Service> workingPlan = collector.getWorkingPlan();
+        _services = workingPlan.toArray(new Service[workingPlan.size()]);
+        _candidates = new int[_services.length][];
+        Map<Provider, Integer> ids = new HashMap<>();
+        List<Provider> providers = new ArrayList<>();
+        for (int slot = 0; slot < _services.length; slot++) {
+            List<Provider> candidates = collector.getCandidates(_services[slot]);
+            _candidates[slot] = new int[candidates.size()];
+            for (int i = 0; i < candidates.size(); i++) {
+                Provider p = candidates.get(i);
+                Integer id = ids.get(p);
+                if (id == null) {
+                    id = providers.size();
+                    ids.put(p, id);
+                    providers.add(p);
+                }
+                _candidates[slot][i] = id;
+            }
+        }
+        _providers = providers.toArray(new Provider[providers.size()]);
+    }
+
+    /**
+     * Returns the number of services of the working plan.
+     *
+     * @return the number of slots.
+     */
+    public int getSlotCount() {
+        return _services.length;
+    }
+
+    public Service getService(int slot) {
+        return _services[slot];
+    }
+
+    public int getCandidateCount(int slot) {
+        return _candidates[slot].length;
+    }
+
+    /**
+     * Returns a candidate of a slot.
+     *
+     * @param slot the slot.
+     * @param i the position of the candidate in the slot.
+     * @return the provider index.
+     */
+    public int getCandidate(int slot, int i) {
+        return _candidates[slot][i];
+    }
+
+    /**
+     * Returns the candidates of a slot.
+     *
+     * @param slot the slot.
+     * @return a list of providers.
+     */
+    public List<Provider> getCandidates(int slot) {
+        List<Provider> candidates = new ArrayList<>(_candidates[slot].length);
+        for (int id : _candidates[slot]) {
+            candidates.add(_providers[id]);
+        }
+        return candidates;
+    }
+
+    /**
+     * Returns the number of distinct providers among all the candidates.
+     *
+     * @return the number of providers.
+     */
+    public int getProviderCount() {
+        return _providers.length;
+    }
+
+    public Provider getProvider(int index) {
+        return _providers[index];
+    }
+
+    /**
+     * Checks if there is no working unit, that is if some service has no
+     * candidate.
+     *
+     * @return true if the space is empty.
+     */
+    public boolean isEmpty() {
+        for (int[] c : _candidates) {
+            if (c.length == 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns the number of working units in the space.
+     *
+     * @return the number of working units, Long.MAX_VALUE if they are more.
+     */
+    public long size() {
+        long size = 1;
+        for (int[] c : _candidates) {
+            if (c.length == 0) {
+                return 0;
+            }
+            if (size > Long.MAX_VALUE / c.length) {
+                return Long.MAX_VALUE;
+            }
+            size *= c.length;
+        }
+        return size;
+    }
+
+    /**
+     * Builds the working unit.
+     *
+     * @param choice the position of the chosen candidate for each slot.
+     * @return a new working unit.
+     */
+    public WorkingUnit toWorkingUnit(int[] choice) {
+        WorkingUnit wu = new WorkingUnit();
+        for (int slot = 0; slot < _services.length; slot++) {
+            wu.add(_providers[_candidates[slot][choice[slot]]], _services[slot]);
+        }
+        return wu;
+    }
+
+    /**
+     * Calculates the overall reputation of a working unit, as the average of
+     * the reputation each member gives to the providers of the services it is
+     * not providing. This is the same value computed by
+     * {@link it.uninsubria.iot.TransitiveTrust#calculateOverallReputation}.
+     *
+     * @param choice the position of the chosen candidate for each slot.
+     * @param reputation the reputation function.
+     * @return the overall reputation, NaN if the working unit contains less
+     * than two providers.
+     */
+    public double score(int[] choice, ReputationFunction reputation) {
+        int slots = _services.length;
+        int[] members = new int[slots];
+        int m = 0;
+        for (int slot = 0; slot < slots; slot++) {
+            int p = _candidates[slot][choice[slot]];
+            boolean found = false;
+            for (int i = 0; i < m && !found; i++) {
+                found = members[i] == p;
+            }
+            if (!found) {
+                members[m++] = p;
+            }
+        }
+        if (m <= 1) {
+            return Double.NaN;
+        }
+        double sum = 0;
+        for (int i = 0; i < m; i++) {
+            Provider source = _providers[members[i]];
+            for (int slot = 0; slot < slots; slot++) {
+                int dest = _candidates[slot][choice[slot]];
+                if (dest != members[i]) {
+                    sum += reputation.getReputation(source, _providers[dest], _services[slot]);
+                }
+            }
+        }
+        return sum / ((double) slots * (m - 1));
+    }
+}
@@ -0,0 +1,64 @@
+package it.uninsubria.iot.search;
+
+import it.uninsubria.iot.entities.Provider;
+import it.uninsubria.iot.entities.Service;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * The parameters of a working unit search, so that many searches can be
+ * submitted together.
+ *
+ * @author Lorenzo Bossi
+ */
+public class WorkingUnitQuery {
+
+    private final Provider _customer;
+    private final Set<Service> _workingPlan;
+    private final int _depth;
+    private final double _minSimilarity;
+
+    /**
+     *
+     * @param customer the node that starts the search.
+     * @param workingPlan the required services, the set is copied.
+     * @param depth how far search.
+     * @param minSimilarity the minimum similarity required to select a service.
+     * @throws IllegalArgumentException if depth is less or equal than 1 or
+     * minSimilarity is not in (0,1].
+     */
+    public WorkingUnitQuery(Provider customer, Set<Service> workingPlan, int depth, double minSimilarity) {
+        if (depth <= 1) {
+            throw new IllegalArgumentException("depth must be greather than 1");
+        }
+        if (minSimilarity > 1 || minSimilarity <= 0) {
+            throw new IllegalArgumentException("minSimilarity must be in (0,1]");
+        }
+        _customer = customer;
+        _workingPlan = Collections.unmodifiableSet(new HashSet<>(workingPlan));
+        _depth = depth;
+        _minSimilarity = minSimilarity;
+    }
+
+    public Provider getCustomer() {
+        return _customer;
+    }
+
+    /**
+     * Returns the required services.
+     *
+     * @return a readonly set.
+     */
+    public Set<Service> getWorkingPlan() {
+        return _workingPlan;
+    }
+
+    public int getDepth() {
+        return _depth;
+    }
+
+    public double getMinSimilarity() {
+        return _minSimilarity;
+    }
+}
@@ -0,0 +1,60 @@
+package it.uninsubria.iot.search;
+
+import it.uninsubria.iot.entities.WorkingUnit;
+import it.uninsubria.iot.utils.Pair;
+import java.util.List;
+
+/**
+ * Looks for the working units with the highest overall reputation.
+ *
+ * @author Lorenzo Bossi
+ */
+public interface WorkingUnitSolver {
+
+    /**
+     * Only working units with an overall reputation greater than this value
+     * are returned.
+     */
+    double MIN_REPUTATION = Double.MIN_VALUE;
+
+    /**
+     * Offers the working units of the space to the incumbents. A solver may
+     * skip the working units that cannot beat the threshold of the
+     * incumbents. Working units with less than two providers are never
+     * offered.
+     *
+     * @param reputations the reputations between the providers of the space
+     * to consider.
+     * @param incumbents the best working units found so far.
+     */
+    void search(ReputationMatrix reputations, Incumbents incumbents);
+
+    /**
+     * Looks for the best working unit.
+     *
+     * @param space the working units to consider.
+     * @param reputation the reputation function.
+     * @return a pair with the best working unit found and its overall
+     * reputation or null if no working unit has a reputation greater than
+     * {@link #MIN_REPUTATION}.
+     */
+    default Pair<WorkingUnit, Double> solve(SearchSpace space, ReputationFunction reputation) {
+        List<Pair<WorkingUnit, Double>> best = solve(space, reputation, 1);
+        return best.isEmpty() ? null : best.get(0);
+    }
+
+    /**
+     * Looks for the k best working units.
+     *
+     * @param space the working units to consider.
+     * @param reputation the reputation function.
+     * @param k the number of working units to return.
+     * @return at most k working units with their overall reputation, best
+     * first.
+     */
+    default List<Pair<WorkingUnit, Double>> solve(SearchSpace space, ReputationFunction reputation, int k) {
+        Incumbents incumbents = new Incumbents(k);
+        search(new ReputationMatrix(space, reputation), incumbents);
+        return incumbents.getWorkingUnits(space);
+    }
+}
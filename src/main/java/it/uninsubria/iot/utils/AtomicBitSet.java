@@ -0,0 +1,57 @@
+package it.uninsubria.iot.utils;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A fixed size set of bits which can be set concurrently without locks.
+ *
+ * @author Lorenzo Bossi
+ */
+public class AtomicBitSet {
+
+    private final AtomicLongArray _words;
+    private final int _size;
+
+    /**
+     *
+     * @param size the number of bits.
+     */
+    public AtomicBitSet(int size) {
+        _size = size;
+        _words = new AtomicLongArray((size + 63) >>> 6);
+    }
+
+    public int size() {
+        return _size;
+    }
+
+    /**
+     * Returns the value of the bit.
+     *
+     * @param index the bit index.
+     * @return true if the bit is set.
+     */
+    public boolean get(int index) {
+        return (_words.get(index >>> 6) & (1L << index)) != 0;
+    }
+
+    /**
+     * Sets the bit.
+     *
+     * @param index the bit index.
+     * @return true if this call set the bit, false if it was already set.
+     */
+    public boolean set(int index) {
+        int word = index >>> 6;
+        long mask = 1L << index;
+        while (true) {
+            long old = _words.get(word);
+            if ((old & mask) != 0) {
+                return false;
+            }
+            if (_words.compareAndSet(word, old, old | mask)) {
+                return true;
+            }
+        }
+    }
+}
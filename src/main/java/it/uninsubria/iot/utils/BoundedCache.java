@@ -0,0 +1,126 @@
+package it.uninsubria.iot.utils;
+
+import java.util.function.ToLongFunction;
+
+/**
+ * Base class for caches with a limit on the number of entries and on their
+ * total weight. When a limit is exceeded the subclass chooses the entries to
+ * evict. This class is not thread safe.
+ *
+ * @author Lorenzo Bossi
+ * @param <K> the type of the key.
+ * @param <V> the type of the values.
+ */
+public abstract class BoundedCache<K, V> implements Cache<K, V> {
+
+    private final int _maxEntries;
+    private final long _maxWeight;
+    private final ToLongFunction<? super V> _weigher;
+
+    private long _weight = 0;
+    private long _hits = 0;
+    private long _misses = 0;
+    private long _evictions = 0;
+
+    /**
+     * Initializes the limits.
+     *
+     * @param maxEntries the maximum number of entries.
+     * @param maxWeight the maximum total weight of the entries.
+     * @param weigher the function that gives the weight of a value.
+     * @throws IllegalArgumentException if a limit is negative.
+     */
+    protected BoundedCache(int maxEntries, long maxWeight, ToLongFunction<? super V> weigher) {
+        if (maxEntries < 0 || maxWeight < 0) {
+            throw new IllegalArgumentException("The cache limits cannot be negative");
+        }
+        _maxEntries = maxEntries;
+        _maxWeight = maxWeight;
+        _weigher = weigher;
+    }
+
+    @Override
+    public V get(K key) {
+        V value = lookup(key);
+        if (value == null) {
+            _misses++;
+        } else {
+            _hits++;
+        }
+        return value;
+    }
+
+    @Override
+    public void put(K key, V value) {
+        if (value == null) {
+            throw new NullPointerException("null values are not allowed");
+        }
+        long weight = _weigher.applyAsLong(value);
+        if (weight > _maxWeight || _maxEntries == 0) {
+            V old = remove(key);
+            if (old != null) {
+                _weight -= _weigher.applyAsLong(old);
+            }
+            return;
+        }
+        V old = store(key, value);
+        if (old != null) {
+            _weight -= _weigher.applyAsLong(old);
+        }
+        _weight += weight;
+        while (size() > _maxEntries || _weight > _maxWeight) {
+            V evicted = evict(key);
+            _weight -= _weigher.applyAsLong(evicted);
+            _evictions++;
+        }
+    }
+
+    @Override
+    public void clear() {
+        removeAll();
+        _weight = 0;
+    }
+
+    @Override
+    public CacheStatistics getStatistics() {
+        return new CacheStatistics(_hits, _misses, _evictions, size(), _weight);
+    }
+
+    /**
+     * Returns the value and records the access.
+     *
+     * @param key the key.
+     * @return the value or null.
+     */
+    protected abstract V lookup(K key);
+
+    /**
+     * Stores the value.
+     *
+     * @param key the key.
+     * @param value the value.
+     * @return the value previously associated to the key or null.
+     */
+    protected abstract V store(K key, V value);
+
+    /**
+     * Removes the value associated to the key.
+     *
+     * @param key the key.
+     * @return the removed value or null.
+     */
+    protected abstract V remove(K key);
+
+    /**
+     * Removes an entry according to the eviction policy.
+     *
+     * @param protectedKey the key just inserted, which must not be evicted.
+     * @return the evicted value.
+     */
+    protected abstract V evict(K protectedKey);
+
+    /**
+     * Removes all the entries.
+     */
+    protected abstract void removeAll();
+}
@@ -0,0 +1,48 @@
+package it.uninsubria.iot.utils;
+
+/**
+ * A key-value cache. Implementations decide how many entries are kept and
+ * which ones are evicted.
+ *
+ * @author Lorenzo Bossi
+ * @param <K> the type of the key.
+ * @param <V> the type of the values.
+ */
+public interface Cache<K, V> {
+
+    /**
+     * Returns the value associated to the key.
+     *
+     * @param key the key.
+     * @return the cached value or null if the key is not in the cache.
+     */
+    V get(K key);
+
+    /**
+     * Associates the value to the key. The value may be evicted immediately
+     * if it doesn't fit the cache.
+     *
+     * @param key the key.
+     * @param value the value, it cannot be null.
+     */
+    void put(K key, V value);
+
+    /**
+     * Removes all the entries. The statistics are not reset.
+     */
+    void clear();
+
+    /**
+     * Returns the number of entries in the cache.
+     *
+     * @return the number of entries.
+     */
+    int size();
+
+    /**
+     * Returns the counters of the cache.
+     *
+     * @return a snapshot of the current statistics.
+     */
+    CacheStatistics getStatistics();
+}
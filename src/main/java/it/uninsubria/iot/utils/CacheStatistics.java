@@ -0,0 +1,69 @@
+package it.uninsubria.iot.utils;
+
+/**
+ * A snapshot of the counters of a cache.
+ *
+ * @author Lorenzo Bossi
+ */
+public class CacheStatistics {
+
+    private final long _hits;
+    private final long _misses;
+    private final long _evictions;
+    private final int _size;
+    private final long _weight;
+
+    public CacheStatistics(long hits, long misses, long evictions, int size, long weight) {
+        _hits = hits;
+        _misses = misses;
+        _evictions = evictions;
+        _size = size;
+        _weight = weight;
+    }
+
+    public long getHits() {
+        return _hits;
+    }
+
+    public long getMisses() {
+        return _misses;
+    }
+
+    public long getEvictions() {
+        return _evictions;
+    }
+
+    /**
+     * Returns the number of entries in the cache.
+     *
+     * @return the number of entries.
+     */
+    public int getSize() {
+        return _size;
+    }
+
+    /**
+     * Returns the total weight of the entries in the cache.
+     *
+     * @return the weight, usually an estimation in bytes.
+     */
+    public long getWeight() {
+        return _weight;
+    }
+
+    /**
+     * Returns the ratio between hits and lookups.
+     *
+     * @return the hit rate in [0,1], 0 if no lookup was done.
+     */
+    public double getHitRate() {
+        long lookups = _hits + _misses;
+        return lookups == 0 ? 0 : (double) _hits / lookups;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("hits=%d misses=%d (%.1f%%) evictions=%d size=%d weight=%d",
+                _hits, _misses, getHitRate() * 100, _evictions, _size, _weight);
+    }
+}
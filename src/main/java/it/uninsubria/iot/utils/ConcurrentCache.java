@@ -0,0 +1,149 @@
+package it.uninsubria.iot.utils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.ToLongFunction;
+
+/**
+ * A thread safe bounded cache with approximated LRU eviction. Lookups never
+ * lock: they read a {@link ConcurrentHashMap} and record the access time in
+ * the entry. When an insertion exceeds a limit, the inserting thread takes a
+ * lock and evicts the least recently accessed entries until the cache is
+ * back to 90% of its limits, so the cost of sorting is amortized among many
+ * insertions.
+ *
+ * @author Lorenzo Bossi
+ * @param <K> the type of the key.
+ * @param <V> the type of the values.
+ */
+public class ConcurrentCache<K, V> implements Cache<K, V> {
+
+    private final ConcurrentHashMap<K, Node<V>> _entries = new ConcurrentHashMap<>();
+    private final int _maxEntries;
+    private final long _maxWeight;
+    private final ToLongFunction<? super V> _weigher;
+    private final Object _evictionLock = new Object();
+
+    private final AtomicLong _weight = new AtomicLong();
+    private final LongAdder _hits = new LongAdder();
+    private final LongAdder _misses = new LongAdder();
+    private final LongAdder _evictions = new LongAdder();
+
+    /**
+     * Creates a cache limited by the number of entries.
+     *
+     * @param maxEntries the maximum number of entries.
+     */
+    public ConcurrentCache(int maxEntries) {
+        this(maxEntries, Long.MAX_VALUE, v -> 1);
+    }
+
+    /**
+     * Creates a cache limited by the total weight of the entries.
+     *
+     * @param maxWeight the maximum weight.
+     * @param weigher the function that gives the weight of a value.
+     */
+    public ConcurrentCache(long maxWeight, ToLongFunction<? super V> weigher) {
+        this(Integer.MAX_VALUE, maxWeight, weigher);
+    }
+
+    private ConcurrentCache(int maxEntries, long maxWeight, ToLongFunction<? super V> weigher) {
+        if (maxEntries < 0 || maxWeight < 0) {
+            throw new IllegalArgumentException("The cache limits cannot be negative");
+        }
+        _maxEntries = maxEntries;
+        _maxWeight = maxWeight;
+        _weigher = weigher;
+    }
+
+    @Override
+    public V get(K key) {
+        Node<V> node = _entries.get(key);
+        if (node == null) {
+            _misses.increment();
+            return null;
+        }
+        node.lastAccess = System.nanoTime();
+        _hits.increment();
+        return node.value;
+    }
+
+    @Override
+    public void put(K key, V value) {
+        if (value == null) {
+            throw new NullPointerException("null values are not allowed");
+        }
+        long weight = _weigher.applyAsLong(value);
+        if (weight > _maxWeight || _maxEntries == 0) {
+            Node<V> old = _entries.remove(key);
+            if (old != null) {
+                _weight.addAndGet(-old.weight);
+            }
+            return;
+        }
+        Node<V> old = _entries.put(key, new Node<>(value, weight));
+        long total = _weight.addAndGet(old == null ? weight : weight - old.weight);
+        if (total > _maxWeight || _entries.size() > _maxEntries) {
+            evict();
+        }
+    }
+
+    private void evict() {
+        synchronized (_evictionLock) {
+            long weightGoal = _maxWeight - _maxWeight / 10;
+            long entriesGoal = _maxEntries - _maxEntries / 10;
+            if (_weight.get() <= _maxWeight && _entries.size() <= _maxEntries) {
+                return; // another thread already did the job
+            }
+            List<Map.Entry<K, Node<V>>> entries = new ArrayList<>(_entries.entrySet());
+            entries.sort((a, b) -> Long.compare(a.getValue().lastAccess, b.getValue().lastAccess));
+            for (Map.Entry<K, Node<V>> entry : entries) {
+                if (_weight.get() <= weightGoal && _entries.size() <= entriesGoal) {
+                    break;
+                }
+                if (_entries.remove(entry.getKey(), entry.getValue())) {
+                    _weight.addAndGet(-entry.getValue().weight);
+                    _evictions.increment();
+                }
+            }
+        }
+    }
+
+    @Override
+    public void clear() {
+        for (K key : _entries.keySet()) {
+            Node<V> old = _entries.remove(key);
+            if (old != null) {
+                _weight.addAndGet(-old.weight);
+            }
+        }
+    }
+
+    @Override
+    public int size() {
+        return _entries.size();
+    }
+
+    @Override
+    public CacheStatistics getStatistics() {
+        return new CacheStatistics(_hits.sum(), _misses.sum(), _evictions.sum(), _entries.size(), _weight.get());
+    }
+
+    private static class Node<V> {
+
+        private final V value;
+        private final long weight;
+        private volatile long lastAccess;
+
+        private Node(V value, long weight) {
+            this.value = value;
+            this.weight = weight;
+            this.lastAccess = System.nanoTime();
+        }
+    }
+}
@@ -134,7 +134,17 @@ public class CustomRandom {
      * @param bound the limit.
      * @return a random integer in [0,bound)
      */
-    int nextInt(int bound) {
+    public int nextInt(int bound) {
         return _rnd.nextInt(bound);
     }
+
+    /**
+     * Returns a random double uniformly distributed between 0 (inclusive) and
+     * 1 (exclusive).
+     *
+     * @return a random double in [0,1)
+     */
+    public double nextDouble() {
+        return _rnd.nextDouble();
+    }
 }
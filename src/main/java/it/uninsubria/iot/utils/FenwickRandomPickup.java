@@ -0,0 +1,125 @@
+package it.uninsubria.iot.utils;
+
+/**
+ * Randomly pick up an index with probability proportional to a weight which
+ * can change over time. The weights are kept in a Fenwick (binary indexed)
+ * tree, so both a pick and the update of a weight take O(log n).
+ *
+ * @author Lorenzo Bossi
+ */
+public class FenwickRandomPickup {
+
+    private final CustomRandom _rnd;
+    private final int[] _weights;
+    /**
+     * 1-based Fenwick tree: _tree[i] is the sum of the weights in
+     * (i - lowbit(i), i].
+     */
+    private final long[] _tree;
+    private final int _topBit;
+    private long _total;
+
+    /**
+     * Set up the class.
+     *
+     * @param rnd the random number generator.
+     * @param weights the initial weight of every index, it is not modified.
+     * @throws IllegalArgumentException if a weight is negative.
+     */
+    public FenwickRandomPickup(CustomRandom rnd, int[] weights) {
+        _rnd = rnd;
+        int n = weights.length;
+        _weights = new int[n];
+        _tree = new long[n + 1];
+        for (int i = 0; i < n; i++) {
+            if (weights[i] < 0) {
+                throw new IllegalArgumentException("The weights cannot be negative");
+            }
+            _weights[i] = weights[i];
+            _tree[i + 1] += weights[i];
+            int parent = (i + 1) + ((i + 1) & -(i + 1));
+            if (parent <= n) {
+                _tree[parent] += _tree[i + 1];
+            }
+            _total += weights[i];
+        }
+        _topBit = n == 0 ? 0 : Integer.highestOneBit(n);
+    }
+
+    public int size() {
+        return _weights.length;
+    }
+
+    /**
+     * Returns the sum of all the weights.
+     *
+     * @return the total weight.
+     */
+    public long getTotal() {
+        return _total;
+    }
+
+    /**
+     * Returns the current weight of an index.
+     *
+     * @param index the index.
+     * @return the weight.
+     */
+    public int getWeight(int index) {
+        return _weights[index];
+    }
+
+    /**
+     * Changes the weight of an index by a given amount.
+     *
+     * @param index the index.
+     * @param delta the amount to add, may be negative.
+     * @throws IllegalArgumentException if the weight would become negative.
+     */
+    public void add(int index, int delta) {
+        if (_weights[index] + delta < 0) {
+            throw new IllegalArgumentException("The weights cannot be negative");
+        }
+        _weights[index] += delta;
+        _total += delta;
+        for (int i = index + 1; i < _tree.length; i += i & -i) {
+            _tree[i] += delta;
+        }
+    }
+
+    /**
+     * Sets the weight of an index.
+     *
+     * @param index the index.
+     * @param weight the new weight.
+     * @throws IllegalArgumentException if the weight is negative.
+     */
+    public void set(int index, int weight) {
+        add(index, weight - _weights[index]);
+    }
+
+    /**
+     * Returns the next random index.
+     *
+     * @return an index with probability weight / total.
+     * @throws IllegalStateException if all the weights are 0 or the total
+     * weight does not fit an int.
+     */
+    public int getNext() {
+        if (_total <= 0 || _total > Integer.MAX_VALUE) {
+            throw new IllegalStateException("The total weight must be in [1, " + Integer.MAX_VALUE + "]");
+        }
+        long r = _rnd.nextInt((int) _total);
+        // the largest position whose prefix sum is <= r, the picked index is
+        // the following one
+        int pos = 0;
+        for (int bit = _topBit; bit > 0; bit >>= 1) {
+            int next = pos + bit;
+            if (next < _tree.length && _tree[next] <= r) {
+                pos = next;
+                r -= _tree[next];
+            }
+        }
+        return pos;
+    }
+}
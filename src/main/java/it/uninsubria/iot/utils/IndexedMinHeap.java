@@ -0,0 +1,190 @@
+package it.uninsubria.iot.utils;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+/**
+ * A binary min heap of int ids in [0, capacity) ordered by a double key. The
+ * position of every id in the heap is tracked, so the key of an element can be
+ * decreased in O(log n) without any allocation.
+ *
+ * @author Lorenzo Bossi
+ */
+public class IndexedMinHeap {
+
+    private final int[] _heap;
+    private final int[] _position;
+    private final double[] _keys;
+    private int _size;
+
+    /**
+     * Creates an empty heap.
+     *
+     * @param capacity the number of distinct ids the heap can contain.
+     */
+    public IndexedMinHeap(int capacity) {
+        _heap = new int[capacity];
+        _position = new int[capacity];
+        _keys = new double[capacity];
+        Arrays.fill(_position, -1);
+        _size = 0;
+    }
+
+    public int capacity() {
+        return _heap.length;
+    }
+
+    public boolean isEmpty() {
+        return _size == 0;
+    }
+
+    public int size() {
+        return _size;
+    }
+
+    /**
+     * Checks if the id is currently in the heap.
+     *
+     * @param id the id.
+     * @return true if the id is in the heap.
+     */
+    public boolean contains(int id) {
+        return _position[id] >= 0;
+    }
+
+    /**
+     * Returns the key associated to an id in the heap.
+     *
+     * @param id the id.
+     * @return the key.
+     * @throws NoSuchElementException if the id is not in the heap.
+     */
+    public double getKey(int id) {
+        if (_position[id] < 0) {
+            throw new NoSuchElementException("The id " + id + " is not in the heap");
+        }
+        return _keys[id];
+    }
+
+    /**
+     * Inserts a new id in the heap.
+     *
+     * @param id the id.
+     * @param key the key.
+     * @throws IllegalStateException if the id is already in the heap.
+     */
+    public void insert(int id, double key) {
+        if (_position[id] >= 0) {
+            throw new IllegalStateException("The id " + id + " is already in the heap");
+        }
+        _keys[id] = key;
+        _heap[_size] = id;
+        _position[id] = _size;
+        _size++;
+        siftUp(_size - 1);
+    }
+
+    /**
+     * Decreases the key associated to an id.
+     *
+     * @param id the id.
+     * @param key the new key, it must not be greater than the current one.
+     * @throws NoSuchElementException if the id is not in the heap.
+     * @throws IllegalArgumentException if the key is greater than the current
+     * one.
+     */
+    public void decreaseKey(int id, double key) {
+        if (_position[id] < 0) {
+            throw new NoSuchElementException("The id " + id + " is not in the heap");
+        }
+        if (key > _keys[id]) {
+            throw new IllegalArgumentException("The new key is greater than the current one");
+        }
+        _keys[id] = key;
+        siftUp(_position[id]);
+    }
+
+    /**
+     * Returns the id with the minimum key without removing it.
+     *
+     * @return the id with the minimum key.
+     * @throws NoSuchElementException if the heap is empty.
+     */
+    public int peek() {
+        if (_size == 0) {
+            throw new NoSuchElementException();
+        }
+        return _heap[0];
+    }
+
+    /**
+     * Removes and returns the id with the minimum key.
+     *
+     * @return the id with the minimum key.
+     * @throws NoSuchElementException if the heap is empty.
+     */
+    public int poll() {
+        if (_size == 0) {
+            throw new NoSuchElementException();
+        }
+        int min = _heap[0];
+        _size--;
+        _position[min] = -1;
+        if (_size > 0) {
+            int last = _heap[_size];
+            _heap[0] = last;
+            _position[last] = 0;
+            siftDown(0);
+        }
+        return min;
+    }
+
+    /**
+     * Removes all the elements.
+     */
+    public void clear() {
+        for (int i = 0; i < _size; i++) {
+            _position[_heap[i]] = -1;
+        }
+        _size = 0;
+    }
+
+    private void siftUp(int pos) {
+        int id = _heap[pos];
+        double key = _keys[id];
+        while (pos > 0) {
+            int parent = (pos - 1) >>> 1;
+            int parentId = _heap[parent];
+            if (_keys[parentId] <= key) {
+                break;
+            }
+            _heap[pos] = parentId;
+            _position[parentId] = pos;
+            pos = parent;
+        }
+        _heap[pos] = id;
+        _position[id] = pos;
+    }
+
+    private void siftDown(int pos) {
+        int id = _heap[pos];
+        double key = _keys[id];
+        int half = _size >>> 1;
+        while (pos < half) {
+            int child = 2 * pos + 1;
+            int right = child + 1;
+            if (right < _size && _keys[_heap[right]] < _keys[_heap[child]]) {
+                child = right;
+            }
+            int childId = _heap[child];
+            if (key <= _keys[childId]) {
+                break;
+            }
+            _heap[pos] = childId;
+            _position[childId] = pos;
+            pos = child;
+        }
+        _heap[pos] = id;
+        _position[id] = pos;
+    }
+}
@@ -0,0 +1,141 @@
+package it.uninsubria.iot.utils;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.ToLongFunction;
+
+/**
+ * A bounded cache which evicts the least frequently used entries. Among the
+ * entries with the same frequency the least recently used one is evicted.
+ * The keys are grouped by frequency in a sorted map, so an access or an
+ * eviction takes O(log f) time, where f is the number of distinct
+ * frequencies. This class is not thread safe.
+ *
+ * @author Lorenzo Bossi
+ * @param <K> the type of the key.
+ * @param <V> the type of the values.
+ */
+public class LfuCache<K, V> extends BoundedCache<K, V> {
+
+    private final Map<K, Entry<V>> _entries = new HashMap<>();
+    private final TreeMap<Integer, LinkedHashSet<K>> _frequencies = new TreeMap<>();
+
+    /**
+     * Creates a cache limited by the number of entries.
+     *
+     * @param maxEntries the maximum number of entries.
+     */
+    public LfuCache(int maxEntries) {
+        super(maxEntries, Long.MAX_VALUE, v -> 1);
+    }
+
+    /**
+     * Creates a cache limited by the total weight of the entries.
+     *
+     * @param maxWeight the maximum weight.
+     * @param weigher the function that gives the weight of a value.
+     */
+    public LfuCache(long maxWeight, ToLongFunction<? super V> weigher) {
+        super(Integer.MAX_VALUE, maxWeight, weigher);
+    }
+
+    @Override
+    protected V lookup(K key) {
+        Entry<V> entry = _entries.get(key);
+        if (entry == null) {
+            return null;
+        }
+        touch(key, entry);
+        return entry.value;
+    }
+
+    @Override
+    protected V store(K key, V value) {
+        Entry<V> entry = _entries.get(key);
+        if (entry != null) {
+            V old = entry.value;
+            entry.value = value;
+            touch(key, entry);
+            return old;
+        }
+        _entries.put(key, new Entry<>(value));
+        bucket(1).add(key);
+        return null;
+    }
+
+    @Override
+    protected V remove(K key) {
+        Entry<V> entry = _entries.remove(key);
+        if (entry == null) {
+            return null;
+        }
+        unlink(key, entry.frequency);
+        return entry.value;
+    }
+
+    @Override
+    protected V evict(K protectedKey) {
+        // the protected key is skipped, it can be alone in the lowest bucket
+        for (Map.Entry<Integer, LinkedHashSet<K>> bucket : _frequencies.entrySet()) {
+            LinkedHashSet<K> keys = bucket.getValue();
+            for (Iterator<K> it = keys.iterator(); it.hasNext();) {
+                K key = it.next();
+                if (!key.equals(protectedKey)) {
+                    it.remove();
+                    if (keys.isEmpty()) {
+                        _frequencies.remove(bucket.getKey());
+                    }
+                    return _entries.remove(key).value;
+                }
+            }
+        }
+        throw new IllegalStateException("No entry can be evicted");
+    }
+
+    @Override
+    protected void removeAll() {
+        _entries.clear();
+        _frequencies.clear();
+    }
+
+    @Override
+    public int size() {
+        return _entries.size();
+    }
+
+    private void touch(K key, Entry<V> entry) {
+        unlink(key, entry.frequency);
+        entry.frequency++;
+        bucket(entry.frequency).add(key);
+    }
+
+    private void unlink(K key, int frequency) {
+        LinkedHashSet<K> keys = _frequencies.get(frequency);
+        keys.remove(key);
+        if (keys.isEmpty()) {
+            _frequencies.remove(frequency);
+        }
+    }
+
+    private LinkedHashSet<K> bucket(int frequency) {
+        LinkedHashSet<K> keys = _frequencies.get(frequency);
+        if (keys == null) {
+            keys = new LinkedHashSet<>();
+            _frequencies.put(frequency, keys);
+        }
+        return keys;
+    }
+
+    private static class Entry<V> {
+
+        private V value;
+        private int frequency = 1;
+
+        private Entry(V value) {
+            this.value = value;
+        }
+    }
+}
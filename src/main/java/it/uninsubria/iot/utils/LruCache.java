@@ -0,0 +1,72 @@
+package it.uninsubria.iot.utils;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.ToLongFunction;
+
+/**
+ * A bounded cache which evicts the least recently used entries. This class is
+ * not thread safe.
+ *
+ * @author Lorenzo Bossi
+ * @param <K> the type of the key.
+ * @param <V> the type of the values.
+ */
+public class LruCache<K, V> extends BoundedCache<K, V> {
+
+    private final LinkedHashMap<K, V> _entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    /**
+     * Creates a cache limited by the number of entries.
+     *
+     * @param maxEntries the maximum number of entries.
+     */
+    public LruCache(int maxEntries) {
+        super(maxEntries, Long.MAX_VALUE, v -> 1);
+    }
+
+    /**
+     * Creates a cache limited by the total weight of the entries.
+     *
+     * @param maxWeight the maximum weight.
+     * @param weigher the function that gives the weight of a value.
+     */
+    public LruCache(long maxWeight, ToLongFunction<? super V> weigher) {
+        super(Integer.MAX_VALUE, maxWeight, weigher);
+    }
+
+    @Override
+    protected V lookup(K key) {
+        return _entries.get(key);
+    }
+
+    @Override
+    protected V store(K key, V value) {
+        return _entries.put(key, value);
+    }
+
+    @Override
+    protected V remove(K key) {
+        return _entries.remove(key);
+    }
+
+    @Override
+    protected V evict(K protectedKey) {
+        Iterator<Map.Entry<K, V>> it = _entries.entrySet().iterator();
+        // the protected key has just been used, so it is never the eldest
+        Map.Entry<K, V> eldest = it.next();
+        it.remove();
+        return eldest.getValue();
+    }
+
+    @Override
+    protected void removeAll() {
+        _entries.clear();
+    }
+
+    @Override
+    public int size() {
+        return _entries.size();
+    }
+}
@@ -0,0 +1,144 @@
+package it.uninsubria.iot.utils;
+
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+/**
+ * Spliterator over the numbers of a mixed radix system. Each number in
+ * [0, r0·r1·...·rn) is represented by its digits, the first one being the
+ * least significant, so the elements are produced in the same order of an
+ * odometer whose first wheel turns fastest. A range of numbers is split in two
+ * halves, which lets fork-join workers visit a cartesian product in parallel.
+ * <br/>
+ * To avoid allocations, the consumer always receives the same array, which
+ * must be neither modified nor retained.
+ *
+ * @author Lorenzo Bossi
+ */
+public class MixedRadixSpliterator implements Spliterator<int[]> {
+
+    private final int[] _radices;
+    private final int[] _digits;
+    private long _index;
+    private final long _end;
+
+    /**
+     * Spliterator over all the numbers.
+     *
+     * @param radices the radix of each digit.
+     * @throws ArithmeticException if the numbers are more than Long.MAX_VALUE.
+     * @throws IllegalArgumentException if a radix is negative.
+     */
+    public MixedRadixSpliterator(int[] radices) {
+        this(radices, 0, count(radices));
+    }
+
+    /**
+     * Spliterator over a range of numbers.
+     *
+     * @param radices the radix of each digit.
+     * @param from the first number (inclusive).
+     * @param to the last number (exclusive).
+     */
+    public MixedRadixSpliterator(int[] radices, long from, long to) {
+        _radices = radices.clone();
+        _digits = new int[radices.length];
+        _index = from;
+        _end = to;
+        if (from < to) {
+            decode(from, _digits);
+        }
+    }
+
+    /**
+     * Returns how many numbers can be represented.
+     *
+     * @param radices the radix of each digit.
+     * @return the product of the radices.
+     * @throws ArithmeticException if the product overflows a long.
+     * @throws IllegalArgumentException if a radix is negative.
+     */
+    public static long count(int[] radices) {
+        long count = 1;
+        for (int r : radices) {
+            if (r < 0) {
+                throw new IllegalArgumentException("Negative radix");
+            }
+            count = Math.multiplyExact(count, r);
+        }
+        return count;
+    }
+
+    /**
+     * Computes the digits of a number.
+     *
+     * @param index the number.
+     * @param digits the array to fill with the digits.
+     */
+    public void decode(long index, int[] digits) {
+        for (int i = 0; i < _radices.length; i++) {
+            digits[i] = (int) (index % _radices[i]);
+            index /= _radices[i];
+        }
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super int[]> action) {
+        if (_index >= _end) {
+            return false;
+        }
+        action.accept(_digits);
+        _index++;
+        increment();
+        return true;
+    }
+
+    @Override
+    public void forEachRemaining(Consumer<? super int[]> action) {
+        while (_index < _end) {
+            action.accept(_digits);
+            _index++;
+            increment();
+        }
+    }
+
+    private void increment() {
+        for (int i = 0; i < _digits.length; i++) {
+            if (++_digits[i] < _radices[i]) {
+                return;
+            }
+            _digits[i] = 0;
+        }
+    }
+
+    @Override
+    public Spliterator<int[]> trySplit() {
+        long mid = _index + (_end - _index) / 2;
+        if (mid == _index) {
+            return null;
+        }
+        MixedRadixSpliterator prefix = new MixedRadixSpliterator(_radices, _index, mid);
+        _index = mid;
+        decode(mid, _digits);
+        return prefix;
+    }
+
+    /**
+     * Returns the next number that will be produced.
+     *
+     * @return the index.
+     */
+    public long getIndex() {
+        return _index;
+    }
+
+    @Override
+    public long estimateSize() {
+        return _end - _index;
+    }
+
+    @Override
+    public int characteristics() {
+        return ORDERED | SIZED | SUBSIZED | NONNULL | IMMUTABLE;
+    }
+}
@@ -1,38 +1,98 @@
 package it.uninsubria.iot.utils;
 
-import java.util.ArrayList;
 import java.util.List;
 import java.util.function.Function;
 
 /**
  * Randomly pick up an element with probability proportionally to a scale.
+ * The scales are fixed when the object is created and every pick takes
+ * constant time with the alias method of Walker and Vose: every element owns
+ * a column of the same height total, which it fills for n · scale units and
+ * which is topped up by a single other element, its alias. A pick chooses a
+ * column and a height uniformly. The columns are computed with integer
+ * arithmetic, so the probabilities are exact. Use
+ * {@link FenwickRandomPickup} when the scales change.
  *
  * @author Lorenzo Bossi
  */
 public class ProportionalRandomPickup<T> {
 
-    private final List<Pair<T, Integer>> _elements;
+    private final List<T> _elements;
     private final CustomRandom _rnd;
     private final int _cumulative;
+    /**
+     * The part of the column of every element owned by the element itself,
+     * in [0, _cumulative].
+     */
+    private final long[] _owned;
+    private final int[] _alias;
 
     /**
      * Set up the class.
      *
      * @param rnd the random number generator.
      * @param elements the elements list from which a random element will be
-     * selected.
+     * selected. The list is kept as it is, not copied, so it must not be
+     * modified afterwards and it should have fast random access.
      * @param proportion the function that associates for each element the value
      * that will define the probability to being selected.
+     * @throws IllegalArgumentException if a value is negative or the sum of
+     * the values is not in [1, Integer.MAX_VALUE].
      */
     public ProportionalRandomPickup(CustomRandom rnd, List<T> elements, Function<T, Integer> proportion) {
         _rnd = rnd;
-        _elements = new ArrayList<>(elements.size());
-        int cumulative = 0;
-        for (T el : elements) {
-            cumulative += proportion.apply(el);
-            _elements.add(new Pair<>(el, cumulative));
+        _elements = elements;
+        int n = _elements.size();
+        long[] scaled = new long[n];
+        long cumulative = 0;
+        for (int i = 0; i < n; i++) {
+            int scale = proportion.apply(_elements.get(i));
+            if (scale < 0) {
+                throw new IllegalArgumentException("The proportions cannot be negative");
+            }
+            cumulative += scale;
+            scaled[i] = (long) scale * n;
+        }
+        if (cumulative <= 0 || cumulative > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("The sum of the proportions must be in [1, " + Integer.MAX_VALUE + "]");
+        }
+        _cumulative = (int) cumulative;
+        _owned = new long[n];
+        _alias = new int[n];
+
+        int[] small = new int[n];
+        int[] large = new int[n];
+        int smallCount = 0;
+        int largeCount = 0;
+        for (int i = 0; i < n; i++) {
+            if (scaled[i] < _cumulative) {
+                small[smallCount++] = i;
+            } else {
+                large[largeCount++] = i;
+            }
+        }
+        while (smallCount > 0 && largeCount > 0) {
+            int s = small[--smallCount];
+            int l = large[largeCount - 1];
+            _owned[s] = scaled[s];
+            _alias[s] = l;
+            scaled[l] -= _cumulative - scaled[s];
+            if (scaled[l] < _cumulative) {
+                largeCount--;
+                small[smallCount++] = l;
+            }
+        }
+        // with exact arithmetic the remaining columns are exactly full
+        while (largeCount > 0) {
+            int l = large[--largeCount];
+            _owned[l] = _cumulative;
+            _alias[l] = l;
+        }
+        while (smallCount > 0) {
+            int s = small[--smallCount];
+            _owned[s] = _cumulative;
+            _alias[s] = s;
         }
-        _cumulative = cumulative;
     }
 
     /**
@@ -41,16 +101,21 @@ public class ProportionalRandomPickup<T> {
      * @return the next random element.
      */
     public T getNext() {
-        int r = _rnd.nextInt(_cumulative);
-        T last = _elements.get(0).first;
+        return getNext(_rnd);
+    }
 
-        for (Pair<T, Integer> c : _elements) {
-            if (c.second > r) {
-                return last;
-            }
-            last = c.first;
-        }
-        return last; //tmch?
+    /**
+     * Returns the next random element drawn with another generator. The
+     * table is never modified, so threads with their own generators can
+     * share it.
+     *
+     * @param rnd the random number generator.
+     * @return the next random element.
+     */
+    public T getNext(CustomRandom rnd) {
+        int column = rnd.nextInt(_owned.length);
+        int height = rnd.nextInt(_cumulative);
+        return _elements.get(height < _owned[column] ? column : _alias[column]);
     }
 
 }
@@ -4,16 +4,20 @@ import it.uninsubria.iot.entities.Provider;
 import it.uninsubria.iot.entities.Service;
 import it.uninsubria.iot.entities.WorkingUnit;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.Set;
+import java.util.Spliterator;
+import java.util.function.Consumer;
 
 /**
  * Produces a set of working units from a set of providers and a working plan.
- * The working units are accessed through the iterator.
+ * The working units are accessed through the iterator, or through a
+ * {@link WorkingUnitCursor} when they should not be allocated.
  *
  * @author Lorenzo Bossi
  */
@@ -67,67 +71,85 @@ public class ProvidersCollector implements Iterable<WorkingUnit> {
         }
     }
 
+    /**
+     * Returns the required services.
+     *
+     * @return a readonly set.
+     */
+    public Set<Service> getWorkingPlan() {
+        return Collections.unmodifiableSet(_workingPlan);
+    }
+
+    /**
+     * Returns the providers collected for a service of the working plan.
+     *
+     * @param service the required service.
+     * @return a readonly list, empty if the service is not in the working
+     * plan.
+     */
+    public List<Provider> getCandidates(Service service) {
+        List<Provider> candidates = _providersPerService.get(service);
+        if (candidates == null) {
+            return Collections.emptyList();
+        }
+        return Collections.unmodifiableList(candidates);
+    }
+
     @Override
     public Iterator<WorkingUnit> iterator() {
         return new WorkingUnitIterator(_providersPerService);
     }
 
+    /**
+     * Returns a cursor on the working units, in the order of the iterator.
+     * Unlike the iterator, the cursor does not build a new working unit at
+     * each step.
+     *
+     * @return a cursor positioned before the first working unit.
+     */
+    public WorkingUnitCursor cursor() {
+        return new WorkingUnitCursor(_providersPerService);
+    }
+
+    /**
+     * Returns a splittable view of the working units. The working units are
+     * numbered in the order of the iterator, and the spliterator splits the
+     * range of numbers, so the working units can be built and scored in
+     * parallel.
+     *
+     * @return a sized spliterator of working units.
+     * @throws ArithmeticException if there are more than Long.MAX_VALUE
+     * working units.
+     */
+    @Override
+    public Spliterator<WorkingUnit> spliterator() {
+        return new WorkingUnitSpliterator(_providersPerService);
+    }
+
 }
 
 class WorkingUnitIterator implements Iterator<WorkingUnit> {
 
-    private final HashMap<Service, Integer> _max;
-    private final Counter<Service> _counter;
-    private final List<Service> _workingPlan;
-    private boolean _empty;
-    private final Map<Service, List<Provider>> _providersPerService;
-    private int _serviceToInc;
+    private final WorkingUnitCursor _cursor;
+    private boolean _hasNext;
 
     WorkingUnitIterator(Map<Service, List<Provider>> providersPerService) {
-        _max = new HashMap<>();
-        _providersPerService = providersPerService;
-        _workingPlan = new ArrayList<>(providersPerService.keySet()); //the set has no order, we must rely on this iterator
-        _empty = false;
-        _counter = new Counter<>();
-        for (Map.Entry<Service, List<Provider>> pair : providersPerService.entrySet()) {
-            Service service = pair.getKey();
-            int size = pair.getValue().size();
-            if (size == 0) {
-                _empty = true;
-            }
-            _max.put(service, size);
-        }
+        _cursor = new WorkingUnitCursor(providersPerService);
+        _hasNext = _cursor.next();
     }
 
     @Override
     public boolean hasNext() {
-        return !_empty;
+        return _hasNext;
     }
 
     @Override
     public WorkingUnit next() {
-        WorkingUnit wu = new WorkingUnit();
-        if (_empty) {
+        if (!_hasNext) {
             throw new NoSuchElementException();
         }
-
-        _serviceToInc = 0;
-        for (int i = 0; i < _workingPlan.size(); i++) {
-            Service service = _workingPlan.get(i);
-            int pos = _counter.get(service);
-            List<Provider> providersList = _providersPerService.get(service);
-            wu.add(providersList.get(pos), service);
-
-            if (_serviceToInc == i) {
-                if (pos < providersList.size() - 1) {
-                    _counter.add(service);
-                } else {
-                    _counter.reset(service);
-                    _serviceToInc++;
-                }
-            }
-        }
-        _empty = _serviceToInc == _workingPlan.size();
+        WorkingUnit wu = _cursor.toWorkingUnit();
+        _hasNext = _cursor.next();
         return wu;
     }
 
@@ -136,3 +158,62 @@ class WorkingUnitIterator implements Iterator<WorkingUnit> {
         throw new UnsupportedOperationException("Not supported");
     }
 }
+
+class WorkingUnitSpliterator implements Spliterator<WorkingUnit> {
+
+    private final List<Service> _workingPlan;
+    private final List<List<Provider>> _candidates;
+    private final MixedRadixSpliterator _digits;
+
+    WorkingUnitSpliterator(Map<Service, List<Provider>> providersPerService) {
+        _workingPlan = new ArrayList<>(providersPerService.keySet()); //same order of WorkingUnitIterator
+        _candidates = new ArrayList<>(_workingPlan.size());
+        int[] radices = new int[_workingPlan.size()];
+        for (int i = 0; i < radices.length; i++) {
+            List<Provider> candidates = providersPerService.get(_workingPlan.get(i));
+            _candidates.add(candidates);
+            radices[i] = candidates.size();
+        }
+        _digits = new MixedRadixSpliterator(radices);
+    }
+
+    private WorkingUnitSpliterator(WorkingUnitSpliterator parent, MixedRadixSpliterator digits) {
+        _workingPlan = parent._workingPlan;
+        _candidates = parent._candidates;
+        _digits = digits;
+    }
+
+    private WorkingUnit toWorkingUnit(int[] digits) {
+        WorkingUnit wu = new WorkingUnit();
+        for (int i = 0; i < digits.length; i++) {
+            wu.add(_candidates.get(i).get(digits[i]), _workingPlan.get(i));
+        }
+        return wu;
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super WorkingUnit> action) {
+        return _digits.tryAdvance(d -> action.accept(toWorkingUnit(d)));
+    }
+
+    @Override
+    public void forEachRemaining(Consumer<? super WorkingUnit> action) {
+        _digits.forEachRemaining(d -> action.accept(toWorkingUnit(d)));
+    }
+
+    @Override
+    public Spliterator<WorkingUnit> trySplit() {
+        MixedRadixSpliterator prefix = (MixedRadixSpliterator) _digits.trySplit();
+        return prefix == null ? null : new WorkingUnitSpliterator(this, prefix);
+    }
+
+    @Override
+    public long estimateSize() {
+        return _digits.estimateSize();
+    }
+
+    @Override
+    public int characteristics() {
+        return ORDERED | SIZED | SUBSIZED | NONNULL;
+    }
+}
@@ -0,0 +1,219 @@
+package it.uninsubria.iot.utils;
+
+import it.uninsubria.iot.entities.Provider;
+import it.uninsubria.iot.entities.Service;
+import it.uninsubria.iot.entities.WorkingUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A reusable view of the working units of a {@link ProvidersCollector}. The
+ * cursor moves through the working units in the same order of the iterator,
+ * keeping only the position of the chosen provider for each service, and
+ * exposes the providers per service and the services per provider of the
+ * current working unit without allocating any object. A real
+ * {@link WorkingUnit} is built only when {@link #toWorkingUnit()} is called,
+ * for instance for the best one.
+ *
+ * @author Lorenzo Bossi
+ */
+public class WorkingUnitCursor {
+
+    private final Service[] _services;
+    private final Provider[][] _candidates;
+    private final int[] _position;
+    private boolean _started;
+    private boolean _done;
+
+    /**
+     * The distinct providers of the current working unit, in the order of
+     * their first slot.
+     */
+    private final Provider[] _members;
+    private int _memberCount;
+    /**
+     * The slots grouped by member, the slots of the member i are in
+     * [_firstSlot[i], _firstSlot[i + 1]).
+     */
+    private final int[] _memberSlots;
+    private final int[] _firstSlot;
+    private final int[] _memberOf;
+
+    WorkingUnitCursor(Map<Service, List<Provider>> providersPerService) {
+        List<Service> workingPlan = new ArrayList<>(providersPerService.keySet()); //same order of WorkingUnitIterator
+        int slots = workingPlan.size();
+        _services = workingPlan.toArray(new Service[slots]);
+        _candidates = new Provider[slots][];
+        for (int slot = 0; slot < slots; slot++) {
+            List<Provider> candidates = providersPerService.get(_services[slot]);
+            _candidates[slot] = candidates.toArray(new Provider[candidates.size()]);
+            if (_candidates[slot].length == 0) {
+                _done = true;
+            }
+        }
+        _position = new int[slots];
+        _members = new Provider[slots];
+        _memberSlots = new int[slots];
+        _firstSlot = new int[slots + 1];
+        _memberOf = new int[slots];
+    }
+
+    /**
+     * Moves to the next working unit. The first call moves to the first one.
+     *
+     * @return false if there are no more working units.
+     */
+    public boolean next() {
+        if (_done) {
+            return false;
+        }
+        if (!_started) {
+            _started = true;
+        } else {
+            int slot = 0;
+            while (slot < _position.length && ++_position[slot] == _candidates[slot].length) {
+                _position[slot] = 0;
+                slot++;
+            }
+            if (slot == _position.length) {
+                _done = true;
+                return false;
+            }
+        }
+        groupByProvider();
+        return true;
+    }
+
+    private void groupByProvider() {
+        int slots = _position.length;
+        _memberCount = 0;
+        for (int slot = 0; slot < slots; slot++) {
+            Provider p = _candidates[slot][_position[slot]];
+            int m = 0;
+            while (m < _memberCount && _members[m] != p) {
+                m++;
+            }
+            if (m == _memberCount) {
+                _members[_memberCount] = p;
+                _firstSlot[_memberCount] = 0;
+                _memberCount++;
+            }
+            _memberOf[slot] = m;
+            _firstSlot[m]++;
+        }
+        // counts to offsets
+        int offset = 0;
+        for (int m = 0; m < _memberCount; m++) {
+            int count = _firstSlot[m];
+            _firstSlot[m] = offset;
+            offset += count;
+        }
+        _firstSlot[_memberCount] = offset;
+        for (int slot = 0; slot < slots; slot++) {
+            _memberSlots[_firstSlot[_memberOf[slot]]++] = slot;
+        }
+        // the fill moved every offset to the next one
+        for (int m = _memberCount; m > 0; m--) {
+            _firstSlot[m] = _firstSlot[m - 1];
+        }
+        _firstSlot[0] = 0;
+    }
+
+    /**
+     * Returns the number of services of the working plan.
+     *
+     * @return the number of slots.
+     */
+    public int getSlotCount() {
+        return _services.length;
+    }
+
+    /**
+     * Returns the service of a slot.
+     *
+     * @param slot the slot.
+     * @return the service.
+     */
+    public Service getService(int slot) {
+        return _services[slot];
+    }
+
+    /**
+     * Returns the provider chosen for the service of a slot.
+     *
+     * @param slot the slot.
+     * @return the provider.
+     */
+    public Provider getProvider(int slot) {
+        return _candidates[slot][_position[slot]];
+    }
+
+    /**
+     * Returns the position of the chosen provider among the candidates of
+     * the slot.
+     *
+     * @param slot the slot.
+     * @return the position.
+     */
+    public int getPosition(int slot) {
+        return _position[slot];
+    }
+
+    /**
+     * Returns the number of distinct providers of the working unit.
+     *
+     * @return the number of members.
+     */
+    public int getMemberCount() {
+        return _memberCount;
+    }
+
+    /**
+     * Returns a distinct provider of the working unit.
+     *
+     * @param member the member index in [0, getMemberCount()).
+     * @return the provider.
+     */
+    public Provider getMember(int member) {
+        return _members[member];
+    }
+
+    /**
+     * Returns how many services a member provides in the working unit.
+     *
+     * @param member the member index.
+     * @return the number of slots assigned to the member.
+     */
+    public int getSlotCount(int member) {
+        return _firstSlot[member + 1] - _firstSlot[member];
+    }
+
+    /**
+     * Returns a slot assigned to a member.
+     *
+     * @param member the member index.
+     * @param i the index in [0, getSlotCount(member)).
+     * @return the slot.
+     */
+    public int getSlot(int member, int i) {
+        return _memberSlots[_firstSlot[member] + i];
+    }
+
+    /**
+     * Builds the current working unit.
+     *
+     * @return a new working unit.
+     * @throws IllegalStateException if the cursor is not on a working unit.
+     */
+    public WorkingUnit toWorkingUnit() {
+        if (!_started || _done) {
+            throw new IllegalStateException("The cursor is not on a working unit");
+        }
+        WorkingUnit wu = new WorkingUnit();
+        for (int slot = 0; slot < _services.length; slot++) {
+            wu.add(getProvider(slot), _services[slot]);
+        }
+        return wu;
+    }
+}
@@ -0,0 +1,137 @@
+package it.uninsubria.iot;
+
+import edu.uci.ics.jung.graph.DirectedSparseMultigraph;
+import it.uninsubria.iot.entities.Provider;
+import it.uninsubria.iot.entities.Service;
+import it.uninsubria.iot.entities.ServiceFactory;
+import it.uninsubria.iot.entities.Trust;
+import it.uninsubria.iot.entities.WorkingUnit;
+import it.uninsubria.iot.graph.CompactTrustGraph;
+import it.uninsubria.iot.search.BatchResult;
+import it.uninsubria.iot.search.ReputationMatrix;
+import it.uninsubria.iot.search.SearchSpace;
+import it.uninsubria.iot.search.WorkingUnitQuery;
+import it.uninsubria.iot.utils.ConcurrentCache;
+import it.uninsubria.iot.utils.Pair;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+import org.junit.Test;
+
+/**
+ *
+ * @author Lorenzo Bossi
+ */
+public class ConcurrentTransitiveTrustTest {
+
+    @Test
+    public void sameReputationsFromManyThreads() throws Exception {
+        List<Service> services = new ServiceFactory(10).getServices();
+        DirectedSparseMultigraph<Provider, Trust> graph = TestGraphs.create(3, services, 40, 5, 400, 200);
+        CompactTrustGraph compact = new CompactTrustGraph(graph, services);
+        final List<Provider> providers = new ArrayList<>(graph.getVertices());
+
+        TransitiveTrust sequential = new TransitiveTrust(compact);
+        // a small cache forces evictions while the threads are running
+        final ConcurrentTransitiveTrust concurrent = new ConcurrentTransitiveTrust(compact, new ConcurrentCache<>(50));
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<double[][]>> results = new ArrayList<>();
+            for (final Service service : services) {
+                results.add(executor.submit(() -> {
+                    double[][] rep = new double[providers.size()][];
+                    for (int i = 0; i < providers.size(); i++) {
+                        rep[i] = concurrent.getReputations(providers.get(i), providers, service);
+                    }
+                    return rep;
+                }));
+            }
+            for (int s = 0; s < services.size(); s++) {
+                double[][] rep = results.get(s).get();
+                for (int i = 0; i < providers.size(); i++) {
+                    for (int j = 0; j < providers.size(); j++) {
+                        assertThat(rep[i][j], is(sequential.getReputation(providers.get(i), providers.get(j), services.get(s))));
+                    }
+                }
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void sameMatrixInParallel() {
+        List<Service> services = new ServiceFactory(10).getServices();
+        DirectedSparseMultigraph<Provider, Trust> graph = TestGraphs.create(4, services, 40, 5, 400, 200);
+        CompactTrustGraph compact = new CompactTrustGraph(graph, services);
+        TransitiveTrust sequential = new TransitiveTrust(compact);
+        ConcurrentTransitiveTrust concurrent = new ConcurrentTransitiveTrust(compact);
+        Set<Service> plan = new HashSet<>(services.subList(0, 3));
+        for (Provider customer : graph.getVertices()) {
+            SearchSpace space = new SearchSpace(sequential.collectProviders(customer, plan, 3, 0.5));
+            ReputationMatrix expected = new ReputationMatrix(space, sequential);
+            ReputationMatrix actual = new ReputationMatrix(space, concurrent);
+            for (int slot = 0; slot < space.getSlotCount(); slot++) {
+                for (int ci = 0; ci < space.getCandidateCount(slot); ci++) {
+                    for (int p = 0; p < space.getProviderCount(); p++) {
+                        assertThat(actual.get(slot, ci, p), is(expected.get(slot, ci, p)));
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void batchMatchesSingleQueries() {
+        List<Service> services = new ServiceFactory(10).getServices();
+        DirectedSparseMultigraph<Provider, Trust> graph = TestGraphs.create(5, services, 40, 5, 400, 200);
+        CompactTrustGraph compact = new CompactTrustGraph(graph, services);
+        TransitiveTrust sequential = new TransitiveTrust(compact);
+        ConcurrentTransitiveTrust concurrent = new ConcurrentTransitiveTrust(compact);
+
+        Random random = new Random(5);
+        List<Provider> providers = new ArrayList<>(graph.getVertices());
+        List<WorkingUnitQuery> queries = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            Set<Service> plan = new HashSet<>();
+            while (plan.size() < 3) {
+                plan.add(services.get(random.nextInt(5)));
+            }
+            queries.add(new WorkingUnitQuery(providers.get(random.nextInt(10)), plan, 2 + random.nextInt(2), 0.5));
+        }
+        BatchResult batch = concurrent.getWorkingUnits(queries);
+        assertThat(batch.size(), is(queries.size()));
+        assertThat(batch.getNeighborhoodCount() <= 20, is(true));
+        for (int i = 0; i < queries.size(); i++) {
+            WorkingUnitQuery q = queries.get(i);
+            Pair<WorkingUnit, Double> expected = sequential.getWorkingUnit(q.getCustomer(), q.getWorkingPlan(), q.getDepth(), q.getMinSimilarity());
+            if (expected == null) {
+                assertThat(batch.get(i), nullValue());
+            } else {
+                assertThat(batch.get(i).second, is(expected.second));
+            }
+        }
+
+        concurrent.setResultCacheSize(1000);
+        concurrent.getWorkingUnits(queries);
+        BatchResult cached = concurrent.getWorkingUnits(queries);
+        assertThat(cached.getNeighborhoodCount(), is(0));
+        assertThat(cached.getTreeCount(), is(0));
+        for (int i = 0; i < queries.size(); i++) {
+            if (batch.get(i) == null) {
+                assertThat(cached.get(i), nullValue());
+            } else {
+                assertThat(cached.get(i).second, is(batch.get(i).second));
+            }
+        }
+    }
+}
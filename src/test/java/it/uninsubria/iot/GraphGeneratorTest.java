@@ -0,0 +1,139 @@
+package it.uninsubria.iot;
+
+import edu.uci.ics.jung.graph.DirectedSparseMultigraph;
+import it.uninsubria.iot.entities.Provider;
+import it.uninsubria.iot.entities.Service;
+import it.uninsubria.iot.entities.ServiceFactory;
+import it.uninsubria.iot.entities.Trust;
+import it.uninsubria.iot.utils.CustomRandom;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import org.apache.commons.math3.random.JDKRandomGenerator;
+import org.junit.Test;
+
+/**
+ *
+ * @author Lorenzo Bossi
+ */
+public class GraphGeneratorTest {
+
+    @Test
+    public void rewiringKeepsInEdgesConsistent() {
+        Random rnd = new Random(3);
+        int n = 30;
+        RewiringGraph graph = new RewiringGraph(n, 200);
+        for (int e = 0; e < 200; e++) {
+            graph.addEdge(rnd.nextInt(n), rnd.nextInt(n));
+        }
+        for (int i = 0; i < 5000; i++) {
+            graph.moveEdge(rnd.nextInt(200), rnd.nextInt(n), rnd.nextInt(n));
+        }
+        int[] inDegree = new int[n];
+        for (int e = 0; e < graph.getEdgeCount(); e++) {
+            inDegree[graph.getTarget(e)]++;
+        }
+        boolean[] listed = new boolean[graph.getEdgeCount()];
+        for (int v = 0; v < n; v++) {
+            assertThat(graph.inDegree(v), is(inDegree[v]));
+            for (int i = 0; i < graph.inDegree(v); i++) {
+                int e = graph.getInEdge(v, i);
+                assertThat(graph.getTarget(e), is(v));
+                assertThat(listed[e], is(false));
+                listed[e] = true;
+            }
+        }
+    }
+
+    private static CustomRandom createRandom() {
+        JDKRandomGenerator rnd = new JDKRandomGenerator();
+        rnd.setSeed(11);
+        return new CustomRandom(rnd);
+    }
+
+    private static void checkGraph(DirectedSparseMultigraph<Provider, Trust> graph, int providers, int reputationProviders, int edges) {
+        assertThat(graph.getVertexCount(), is(providers + reputationProviders));
+        assertThat(graph.getEdgeCount(), is(edges));
+        int onlyReputation = 0;
+        for (Provider p : graph.getVertices()) {
+            if (p.isOnlyReputation()) {
+                onlyReputation++;
+            }
+        }
+        assertThat(onlyReputation, is(reputationProviders));
+        for (Trust t : graph.getEdges()) {
+            Provider from = graph.getSource(t);
+            Provider to = graph.getDest(t);
+            assertThat(from == to, is(false));
+            assertThat(to.getServices().contains(t.getService()), is(true));
+        }
+    }
+
+    private static int maxInDegree(DirectedSparseMultigraph<Provider, Trust> graph) {
+        int max = 0;
+        for (Provider p : graph.getVertices()) {
+            max = Math.max(max, graph.inDegree(p));
+        }
+        return max;
+    }
+
+    @Test
+    public void createGraph() {
+        List<Service> services = new ServiceFactory(10).getServices();
+        DirectedSparseMultigraph<Provider, Trust> graph = new GraphGenerator(createRandom(), services).createGraph(40, 5, 400, 2000);
+        checkGraph(graph, 40, 5, 400);
+    }
+
+    @Test
+    public void linearTimeGenerators() {
+        List<Service> services = new ServiceFactory(10).getServices();
+        List<TrustGraphGenerator> generators = Arrays.asList(
+                new GraphGenerator(createRandom(), services),
+                new PreferentialAttachmentGenerator(createRandom(), services),
+                new ChungLuGenerator(createRandom(), services));
+        for (TrustGraphGenerator generator : generators) {
+            DirectedSparseMultigraph<Provider, Trust> graph = generator.createGraph(995, 5, 5000);
+            checkGraph(graph, 995, 5, 5000);
+            // the hubs are far above the average in degree of 5
+            assertThat(maxInDegree(graph) > 25, is(true));
+        }
+    }
+
+    private static String describe(DirectedSparseMultigraph<Provider, Trust> graph, List<Service> services) {
+        StringBuilder sb = new StringBuilder();
+        for (Provider p : graph.getVertices()) {
+            sb.append(p.getName()).append(p.isOnlyReputation() ? " R" : "");
+            for (Service s : services) {
+                sb.append(p.getServices().contains(s) ? '1' : '0');
+            }
+            for (Trust t : graph.getOutEdges(p)) {
+                sb.append(' ').append(graph.getDest(t).getName()).append(':')
+                        .append(services.indexOf(t.getService())).append(':').append(t.getLevel());
+            }
+            sb.append('\n');
+        }
+        return sb.toString();
+    }
+
+    @Test
+    public void parallelGenerationIsReproducible() {
+        List<Service> services = new ServiceFactory(10).getServices();
+        ForkJoinPool single = new ForkJoinPool(1);
+        ForkJoinPool many = new ForkJoinPool(4);
+        try {
+            DirectedSparseMultigraph<Provider, Trust> graph = new ParallelGraphGenerator(services, 5, 8, many, 2.5).createGraph(995, 5, 5000);
+            checkGraph(graph, 995, 5, 5000);
+            assertThat(maxInDegree(graph) > 25, is(true));
+            String expected = describe(graph, services);
+            assertThat(describe(new ParallelGraphGenerator(services, 5, 8, single, 2.5).createGraph(995, 5, 5000), services), is(expected));
+            assertThat(describe(new ParallelGraphGenerator(services, 5, 8, many, 2.5).createGraph(995, 5, 5000), services), is(expected));
+            assertThat(describe(new ParallelGraphGenerator(services, 6, 8, many, 2.5).createGraph(995, 5, 5000), services).equals(expected), is(false));
+        } finally {
+            single.shutdown();
+            many.shutdown();
+        }
+    }
+}
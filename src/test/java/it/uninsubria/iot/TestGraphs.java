@@ -0,0 +1,38 @@
+package it.uninsubria.iot;
+
+import edu.uci.ics.jung.graph.DirectedSparseMultigraph;
+import it.uninsubria.iot.entities.Provider;
+import it.uninsubria.iot.entities.Service;
+import it.uninsubria.iot.entities.Trust;
+import it.uninsubria.iot.utils.CustomRandom;
+import java.util.List;
+import org.apache.commons.math3.random.JDKRandomGenerator;
+
+/**
+ * The random graphs the tests run on, built with {@link GraphGenerator} from
+ * a fixed seed.
+ *
+ * @author Lorenzo Bossi
+ */
+public final class TestGraphs {
+
+    private TestGraphs() {
+    }
+
+    /**
+     * Creates a power law graph.
+     *
+     * @param seed the seed of the generator.
+     * @param services the services of the providers.
+     * @param serviceProviders the number of service providers.
+     * @param reputationProviders the number of reputation providers.
+     * @param connections the number of edges.
+     * @param iterations the number of rewiring iterations.
+     * @return the graph, the same for the same arguments.
+     */
+    public static DirectedSparseMultigraph<Provider, Trust> create(long seed, List<Service> services, int serviceProviders, int reputationProviders, int connections, int iterations) {
+        JDKRandomGenerator rnd = new JDKRandomGenerator();
+        rnd.setSeed(seed);
+        return new GraphGenerator(new CustomRandom(rnd), services).createGraph(serviceProviders, reputationProviders, connections, iterations);
+    }
+}
@@ -0,0 +1,196 @@
+package it.uninsubria.iot;
+
+import edu.uci.ics.jung.algorithms.shortestpath.DijkstraShortestPath;
+import edu.uci.ics.jung.graph.DirectedSparseMultigraph;
+import it.uninsubria.iot.entities.Provider;
+import it.uninsubria.iot.entities.Service;
+import it.uninsubria.iot.entities.ServiceFactory;
+import it.uninsubria.iot.entities.Trust;
+import it.uninsubria.iot.entities.WorkingUnit;
+import it.uninsubria.iot.utils.CacheStatistics;
+import it.uninsubria.iot.utils.Pair;
+import it.uninsubria.iot.utils.ProvidersCollector;
+import it.uninsubria.iot.utils.WorkingUnitCursor;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.Matchers.closeTo;
+import static org.junit.Assert.assertThat;
+import org.apache.commons.collections15.Transformer;
+import org.junit.Test;
+
+/**
+ *
+ * @author Lorenzo Bossi
+ */
+public class TransitiveTrustTest {
+
+    private static DirectedSparseMultigraph<Provider, Trust> createGraph(List<Service> services, int seed) {
+        return TestGraphs.create(seed, services, 20, 5, 200, 100);
+    }
+
+    /**
+     * The reputation computed on the JUNG graph, as it was done before the
+     * compact graph was introduced.
+     */
+    private static double jungReputation(DijkstraShortestPath<Provider, Trust> sp, Provider from, Provider to, Service service) {
+        List<Trust> path = sp.getPath(from, to);
+        if (path == null || path.isEmpty()) {
+            return 0;
+        }
+        double reputation = Double.MAX_VALUE;
+        for (Trust edge : path) {
+            reputation = Math.min(reputation, service.similarity(edge.getService()) * edge.getLevel());
+        }
+        return reputation;
+    }
+
+    @Test
+    public void sameReputationAsJung() {
+        List<Service> services = new ServiceFactory(10).getServices();
+        for (int seed = 1; seed <= 5; seed++) {
+            DirectedSparseMultigraph<Provider, Trust> graph = createGraph(services, seed);
+            TransitiveTrust tt = new TransitiveTrust(graph, services);
+            for (final Service service : services) {
+                DijkstraShortestPath<Provider, Trust> sp = new DijkstraShortestPath<>(graph, new Transformer<Trust, Number>() {
+                    @Override
+                    public Number transform(Trust edge) {
+                        return 1 / (edge.getService().similarity(service) * (2 + edge.getLevel()));
+                    }
+                }, true);
+                for (Provider from : graph.getVertices()) {
+                    for (Provider to : graph.getVertices()) {
+                        Number distance = sp.getDistance(from, to);
+                        // paths with infinite weight are ties and may be broken differently
+                        if (distance != null && !Double.isInfinite(distance.doubleValue())) {
+                            assertThat(tt.getReputation(from, to, service), is(jungReputation(sp, from, to, service)));
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void batchReputationsMatchSingleQueries() {
+        List<Service> services = new ServiceFactory(10).getServices();
+        DirectedSparseMultigraph<Provider, Trust> graph = createGraph(services, 7);
+        TransitiveTrust batch = new TransitiveTrust(graph, services);
+        TransitiveTrust single = new TransitiveTrust(graph, services);
+        List<Provider> providers = new ArrayList<>(graph.getVertices());
+        for (Service service : services) {
+            for (Provider from : providers) {
+                double[] reputations = batch.getReputations(from, providers, service);
+                for (int i = 0; i < providers.size(); i++) {
+                    assertThat(reputations[i], is(single.getReputation(from, providers.get(i), service)));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void cursorReputationMatchesWorkingUnit() {
+        List<Service> services = new ServiceFactory(10).getServices();
+        DirectedSparseMultigraph<Provider, Trust> graph = createGraph(services, 6);
+        TransitiveTrust tt = new TransitiveTrust(graph, services);
+        Set<Service> plan = new HashSet<>(services.subList(0, 3));
+        for (Provider customer : graph.getVertices()) {
+            ProvidersCollector collector = tt.collectProviders(customer, plan, 3, 0.5);
+            WorkingUnitCursor cursor = collector.cursor();
+            for (WorkingUnit wu : collector) {
+                assertThat(cursor.next(), is(true));
+                assertThat(cursor.toWorkingUnit().toString(), is(wu.toString()));
+                assertThat(cursor.getMemberCount(), is(wu.getProviders().size()));
+                if (cursor.getMemberCount() > 1) {
+                    assertThat(tt.calculateOverallReputation(cursor), closeTo(tt.calculateOverallReputation(wu), 1e-12));
+                }
+            }
+            assertThat(cursor.next(), is(false));
+        }
+    }
+
+    @Test
+    public void resultCache() {
+        List<Service> services = new ServiceFactory(10).getServices();
+        DirectedSparseMultigraph<Provider, Trust> graph = createGraph(services, 7);
+        TransitiveTrust tt = new TransitiveTrust(graph, services);
+        tt.setResultCacheSize(100);
+        Set<Service> plan = new LinkedHashSet<>(services.subList(0, 3));
+        List<Service> reversed = new ArrayList<>(services.subList(0, 3));
+        Collections.reverse(reversed);
+        Set<Service> samePlan = new LinkedHashSet<>(reversed);
+        for (Provider customer : graph.getVertices()) {
+            Pair<WorkingUnit, Double> first = tt.getWorkingUnit(customer, plan, 3, 0.5);
+            Pair<WorkingUnit, Double> second = tt.getWorkingUnit(customer, samePlan, 3, 0.5);
+            assertThat(second == first, is(true));
+        }
+        CacheStatistics stats = tt.getResultCacheStatistics();
+        assertThat(stats.getHits(), is((long) graph.getVertexCount()));
+        assertThat(stats.getMisses(), is((long) graph.getVertexCount()));
+
+        tt.invalidate();
+        Provider customer = graph.getVertices().iterator().next();
+        Pair<WorkingUnit, Double> expected = new TransitiveTrust(graph, services).getWorkingUnit(customer, plan, 3, 0.5);
+        Pair<WorkingUnit, Double> actual = tt.getWorkingUnit(customer, plan, 3, 0.5);
+        assertThat(tt.getResultCacheStatistics().getMisses(), is(graph.getVertexCount() + 1L));
+        if (expected != null) {
+            assertThat(actual.second, is(expected.second));
+        }
+    }
+
+    @Test
+    public void goalDirectedSameAsDefault() {
+        List<Service> services = new ServiceFactory(10).getServices();
+        DirectedSparseMultigraph<Provider, Trust> graph = createGraph(services, 8);
+        TransitiveTrust plain = new TransitiveTrust(graph, services);
+        TransitiveTrust goal = new TransitiveTrust(graph, services);
+        goal.setGoalDirected(4);
+        for (Service service : services.subList(0, 3)) {
+            for (Provider from : graph.getVertices()) {
+                for (Provider to : graph.getVertices()) {
+                    assertThat(goal.getReputation(from, to, service), is(plain.getReputation(from, to, service)));
+                }
+            }
+            assertThat(goal.getLandmarkIndex(service).getLandmarkCount() <= 4, is(true));
+        }
+        assertThat(plain.getLandmarkIndex(services.get(0)), nullValue());
+    }
+
+    @Test
+    public void precomputedReputations() {
+        List<Service> services = new ServiceFactory(10).getServices();
+        DirectedSparseMultigraph<Provider, Trust> graph = createGraph(services, 9);
+        TransitiveTrust plain = new TransitiveTrust(graph, services);
+        TransitiveTrust table = new TransitiveTrust(graph, services);
+        assertThat(table.precomputeReputations(32, ForkJoinPool.commonPool()), is(table.getReputationTable()));
+        List<Provider> providers = new ArrayList<>(graph.getVertices());
+        for (Service service : services) {
+            for (Provider from : providers) {
+                double[] reputations = table.getReputations(from, providers, service);
+                for (int i = 0; i < providers.size(); i++) {
+                    double expected = (float) plain.getReputation(from, providers.get(i), service);
+                    assertThat(table.getReputation(from, providers.get(i), service), is(expected));
+                    assertThat(reputations[i], is(expected));
+                }
+            }
+        }
+        Set<Service> plan = new HashSet<>(services.subList(0, 3));
+        for (Provider customer : providers) {
+            Pair<WorkingUnit, Double> expected = plain.getWorkingUnit(customer, plan, 3, 0.5);
+            Pair<WorkingUnit, Double> actual = table.getWorkingUnit(customer, plan, 3, 0.5);
+            if (expected == null) {
+                assertThat(actual, nullValue());
+            } else {
+                assertThat(actual.second, closeTo(expected.second, 1e-6));
+            }
+        }
+        table.setReputationTable(null);
+        assertThat(table.getReputationTable(), nullValue());
+    }
+}
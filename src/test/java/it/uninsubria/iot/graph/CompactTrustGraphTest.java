@@ -0,0 +1,44 @@
+package it.uninsubria.iot.graph;
+
+import edu.uci.ics.jung.graph.DirectedSparseMultigraph;
+import it.uninsubria.iot.TestGraphs;
+import it.uninsubria.iot.entities.Provider;
+import it.uninsubria.iot.entities.Service;
+import it.uninsubria.iot.entities.ServiceFactory;
+import it.uninsubria.iot.entities.Trust;
+import java.util.List;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import org.junit.Test;
+
+/**
+ *
+ * @author Lorenzo Bossi
+ */
+public class CompactTrustGraphTest {
+
+    @Test
+    public void sameEdgesAsOriginal() {
+        List<Service> services = new ServiceFactory(10).getServices();
+        DirectedSparseMultigraph<Provider, Trust> graph = TestGraphs.create(27592, services, 20, 5, 200, 100);
+
+        CompactTrustGraph compact = new CompactTrustGraph(graph, services);
+        assertThat(compact.getProviderCount(), is(graph.getVertexCount()));
+        assertThat(compact.getEdgeCount(), is(graph.getEdgeCount()));
+        assertThat(compact.getServiceCount(), is(services.size()));
+
+        for (int v = 0; v < compact.getProviderCount(); v++) {
+            Provider p = compact.getProvider(v);
+            assertThat(compact.indexOf(p), is(v));
+            assertThat(compact.outDegree(v), is(graph.outDegree(p)));
+            int e = compact.firstEdge(v);
+            for (Trust t : graph.getOutEdges(p)) {
+                assertThat(compact.getProvider(compact.getTarget(e)), is(graph.getDest(t)));
+                assertThat(compact.getService(compact.getEdgeService(e)), is(t.getService()));
+                assertThat(compact.getLevel(e), is(t.getLevel()));
+                e++;
+            }
+            assertThat(e, is(compact.endEdge(v)));
+        }
+    }
+}
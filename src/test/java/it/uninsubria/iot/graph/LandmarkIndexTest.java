@@ -0,0 +1,55 @@
+package it.uninsubria.iot.graph;
+
+import edu.uci.ics.jung.graph.DirectedSparseMultigraph;
+import it.uninsubria.iot.TestGraphs;
+import it.uninsubria.iot.entities.Provider;
+import it.uninsubria.iot.entities.Service;
+import it.uninsubria.iot.entities.ServiceFactory;
+import it.uninsubria.iot.entities.Trust;
+import java.util.List;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import org.junit.Test;
+
+/**
+ *
+ * @author Lorenzo Bossi
+ */
+public class LandmarkIndexTest {
+
+    @Test
+    public void sameReputationAsDijkstra() {
+        List<Service> services = new ServiceFactory(10).getServices();
+        for (int seed = 1; seed <= 3; seed++) {
+            DirectedSparseMultigraph<Provider, Trust> graph = TestGraphs.create(seed, services, 150, 10, 1500, 500);
+            CompactTrustGraph compact = new CompactTrustGraph(graph, services);
+            int n = compact.getProviderCount();
+            SearchScratch scratch = new SearchScratch(n);
+            long settled = 0;
+            long goalQueries = 0;
+            for (int s = 0; s < services.size(); s += 3) {
+                ServiceGraph serviceGraph = new ServiceGraph(compact, s);
+                DijkstraEngine engine = new DijkstraEngine(serviceGraph);
+                LandmarkIndex index = new LandmarkIndex(serviceGraph, LandmarkIndex.DEFAULT_LANDMARKS);
+                assertThat(index.getLandmarkCount() <= LandmarkIndex.DEFAULT_LANDMARKS, is(true));
+                assertThat(index.estimateBytes() > 0, is(true));
+                for (int source = 0; source < n; source += 7) {
+                    ShortestPathTree tree = engine.search(source, new SearchScratch(n));
+                    for (int target = 0; target < n; target++) {
+                        double reputation = index.getReputation(source, target, scratch);
+                        if (!Double.isNaN(reputation)) {
+                            assertThat(reputation, is(tree.getReputation(target)));
+                            if (source != target) {
+                                settled += scratch.getLastSettled();
+                                goalQueries++;
+                            }
+                        }
+                    }
+                }
+            }
+            // on average the goal directed search settles a fraction of the graph
+            assertThat(goalQueries > 0, is(true));
+            assertThat(settled < goalQueries * n / 2, is(true));
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package it.uninsubria.iot.graph;
+
+import edu.uci.ics.jung.algorithms.shortestpath.UnweightedShortestPath;
+import edu.uci.ics.jung.graph.DirectedSparseMultigraph;
+import it.uninsubria.iot.TestGraphs;
+import it.uninsubria.iot.entities.Provider;
+import it.uninsubria.iot.entities.Service;
+import it.uninsubria.iot.entities.ServiceFactory;
+import it.uninsubria.iot.entities.Trust;
+import java.util.List;
+import java.util.Map;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import org.junit.Test;
+
+/**
+ *
+ * @author Lorenzo Bossi
+ */
+public class NeighborhoodTest {
+
+    @Test
+    public void exactHopDistances() {
+        List<Service> services = new ServiceFactory(10).getServices();
+        DirectedSparseMultigraph<Provider, Trust> graph = TestGraphs.create(11, services, 60, 5, 200, 300);
+        CompactTrustGraph compact = new CompactTrustGraph(graph, services);
+        UnweightedShortestPath<Provider, Trust> bfs = new UnweightedShortestPath<>(graph);
+
+        for (int source = 0; source < compact.getProviderCount(); source++) {
+            Map<Provider, Number> distances = bfs.getDistanceMap(compact.getProvider(source));
+            for (int depth = 0; depth <= 4; depth++) {
+                Neighborhood sequential = new Neighborhood(compact, source, depth);
+                Neighborhood parallel = new Neighborhood(compact, source, depth, 1);
+                int expected = 0;
+                for (Number d : distances.values()) {
+                    if (d.intValue() <= depth) {
+                        expected++;
+                    }
+                }
+                assertThat(sequential.size(), is(expected));
+                assertThat(parallel.size(), is(expected));
+                for (int i = 0; i < sequential.size(); i++) {
+                    int p = sequential.getProvider(i);
+                    assertThat(parallel.getProvider(i), is(p));
+                    assertThat(sequential.getHops(i), is(distances.get(compact.getProvider(p)).intValue()));
+                    assertThat(sequential.contains(p), is(true));
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package it.uninsubria.iot.graph;
+
+import edu.uci.ics.jung.graph.DirectedSparseMultigraph;
+import it.uninsubria.iot.TestGraphs;
+import it.uninsubria.iot.entities.Provider;
+import it.uninsubria.iot.entities.Service;
+import it.uninsubria.iot.entities.ServiceFactory;
+import it.uninsubria.iot.entities.Trust;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.Matchers.closeTo;
+import static org.junit.Assert.assertThat;
+import org.junit.Test;
+
+/**
+ *
+ * @author Lorenzo Bossi
+ */
+public class ReputationTableTest {
+
+    @Test
+    public void sameReputationAsDijkstra() {
+        List<Service> services = new ServiceFactory(10).getServices();
+        DirectedSparseMultigraph<Provider, Trust> graph = TestGraphs.create(4, services, 60, 5, 600, 200);
+        CompactTrustGraph compact = new CompactTrustGraph(graph, services);
+        int n = compact.getProviderCount();
+        ForkJoinPool pool = new ForkJoinPool(2);
+        try {
+            ReputationTable floats = new ReputationTable(compact, 32, pool);
+            ReputationTable shorts = new ReputationTable(compact, 16, ForkJoinPool.commonPool());
+            ReputationTable bytes = new ReputationTable(compact, 8, pool);
+            assertThat(floats.getParallelism(), is(2));
+            assertThat(floats.estimateBytes(), is(4L * services.size() * n * n));
+            assertThat(shorts.estimateBytes(), is(floats.estimateBytes() / 2));
+            assertThat(bytes.estimateBytes(), is(floats.estimateBytes() / 4));
+            for (int s = 0; s < services.size(); s++) {
+                DijkstraEngine engine = new DijkstraEngine(new ServiceGraph(compact, s));
+                for (int source = 0; source < n; source++) {
+                    ShortestPathTree tree = engine.search(source, new SearchScratch(n));
+                    for (int target = 0; target < n; target++) {
+                        double expected = tree.getReputation(target);
+                        assertThat(floats.getReputation(s, source, target), is((double) (float) expected));
+                        assertThat(shorts.getReputation(s, source, target), closeTo(expected, shorts.getMaxError()));
+                        assertThat(bytes.getReputation(s, source, target), closeTo(expected, bytes.getMaxError()));
+                    }
+                }
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void unsupportedPrecision() {
+        List<Service> services = new ServiceFactory(3).getServices();
+        DirectedSparseMultigraph<Provider, Trust> graph = TestGraphs.create(1, services, 10, 2, 30, 10);
+        new ReputationTable(new CompactTrustGraph(graph, services), 12, ForkJoinPool.commonPool());
+    }
+}
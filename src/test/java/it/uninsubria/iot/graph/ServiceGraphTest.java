@@ -0,0 +1,122 @@
+package it.uninsubria.iot.graph;
+
+import edu.uci.ics.jung.graph.DirectedSparseMultigraph;
+import it.uninsubria.iot.TestGraphs;
+import it.uninsubria.iot.entities.Provider;
+import it.uninsubria.iot.entities.Service;
+import it.uninsubria.iot.entities.ServiceFactory;
+import it.uninsubria.iot.entities.Trust;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import org.junit.Test;
+
+/**
+ *
+ * @author Lorenzo Bossi
+ */
+public class ServiceGraphTest {
+
+    private static CompactTrustGraph createGraph(List<Service> services) {
+        DirectedSparseMultigraph<Provider, Trust> graph = TestGraphs.create(27592, services, 60, 5, 600, 200);
+        return new CompactTrustGraph(graph, services);
+    }
+
+    @Test
+    public void prunedEdges() {
+        List<Service> services = new ServiceFactory(10).getServices();
+        CompactTrustGraph graph = createGraph(services);
+        for (int s = 0; s < services.size(); s++) {
+            ServiceGraph all = new ServiceGraph(graph, s);
+            ServiceGraph pruned = new ServiceGraph(graph, s, 0.5);
+            assertThat(all.getEdgeCount(), is(graph.getEdgeCount()));
+            int kept = 0;
+            for (int e = 0; e < graph.getEdgeCount(); e++) {
+                if (graph.getService(graph.getEdgeService(e)).similarity(services.get(s)) >= 0.5) {
+                    kept++;
+                }
+            }
+            assertThat(pruned.getEdgeCount(), is(kept));
+            for (int v = 0; v < graph.getProviderCount(); v++) {
+                for (int e = pruned.firstEdge(v); e < pruned.endEdge(v); e++) {
+                    int ge = pruned.getGraphEdge(e);
+                    assertThat(graph.getSource(ge), is(v));
+                    assertThat(pruned.getTarget(e), is(graph.getTarget(ge)));
+                    assertThat(pruned.getWeight(e), is(all.getWeight(ge)));
+                    assertThat(pruned.getReputation(e), is(all.getReputation(ge)));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void droppingInfiniteEdgesKeepsFinitePaths() {
+        List<Service> services = new ServiceFactory(10).getServices();
+        CompactTrustGraph graph = createGraph(services);
+        int n = graph.getProviderCount();
+        SearchScratch scratch = new SearchScratch(n);
+        for (int s = 0; s < services.size(); s++) {
+            DijkstraEngine all = new DijkstraEngine(new ServiceGraph(graph, s), true);
+            DijkstraEngine pruned = new DijkstraEngine(new ServiceGraph(graph, s, Double.MIN_VALUE), true);
+            for (int source = 0; source < n; source += 5) {
+                ShortestPathTree expected = all.search(source, scratch);
+                ShortestPathTree actual = pruned.search(source, scratch);
+                for (int target = 0; target < n; target++) {
+                    if (expected.getDistance(target) < Double.POSITIVE_INFINITY) {
+                        assertThat(actual.getDistance(target), is(expected.getDistance(target)));
+                        assertThat(actual.getReputation(target), is(expected.getReputation(target)));
+                        assertThat(actual.getPredecessorEdge(target), is(expected.getPredecessorEdge(target)));
+                    } else {
+                        assertThat(actual.isReachable(target), is(false));
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void coalescedParallelEdges() {
+        List<Service> services = new ServiceFactory(10).getServices();
+        CompactTrustGraph graph = createGraph(services);
+        int n = graph.getProviderCount();
+        SearchScratch scratch = new SearchScratch(n);
+        for (int s = 0; s < services.size(); s++) {
+            ServiceGraph all = new ServiceGraph(graph, s);
+            ServiceGraph coalesced = new ServiceGraph(graph, s, 0, true);
+            assertThat(coalesced.getCoalescedEdgeCount() > 0, is(true));
+            assertThat(coalesced.getEdgeCount() + coalesced.getCoalescedEdgeCount(), is(graph.getEdgeCount()));
+            for (int v = 0; v < n; v++) {
+                Set<Integer> targets = new HashSet<>();
+                for (int e = coalesced.firstEdge(v); e < coalesced.endEdge(v); e++) {
+                    assertThat(targets.add(coalesced.getTarget(e)), is(true));
+                    for (int ge = graph.firstEdge(v); ge < graph.endEdge(v); ge++) {
+                        if (graph.getTarget(ge) == coalesced.getTarget(e)) {
+                            assertThat(coalesced.getWeight(e) <= all.getWeight(ge), is(true));
+                        }
+                    }
+                }
+                assertThat(targets.size(), is(coalesced.endEdge(v) - coalesced.firstEdge(v)));
+            }
+            DijkstraEngine expected = new DijkstraEngine(all, true);
+            DijkstraEngine actual = new DijkstraEngine(coalesced, true);
+            for (int source = 0; source < n; source += 5) {
+                ShortestPathTree expectedTree = expected.search(source, scratch);
+                ShortestPathTree actualTree = actual.search(source, scratch);
+                for (int target = 0; target < n; target++) {
+                    assertThat(actualTree.getDistance(target), is(expectedTree.getDistance(target)));
+                    if (expectedTree.getDistance(target) < Double.POSITIVE_INFINITY) {
+                        assertThat(actualTree.getReputation(target), is(expectedTree.getReputation(target)));
+                    }
+                }
+            }
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void invalidThreshold() {
+        List<Service> services = new ServiceFactory(3).getServices();
+        new ServiceGraph(createGraph(services), 0, 1.5);
+    }
+}
@@ -0,0 +1,298 @@
+package it.uninsubria.iot.search;
+
+import edu.uci.ics.jung.graph.DirectedSparseMultigraph;
+import it.uninsubria.iot.TestGraphs;
+import it.uninsubria.iot.TransitiveTrust;
+import it.uninsubria.iot.entities.Provider;
+import it.uninsubria.iot.entities.Service;
+import it.uninsubria.iot.entities.ServiceFactory;
+import it.uninsubria.iot.entities.Trust;
+import it.uninsubria.iot.entities.WorkingUnit;
+import it.uninsubria.iot.utils.CustomRandom;
+import it.uninsubria.iot.utils.Pair;
+import it.uninsubria.iot.utils.ProvidersCollector;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.Matchers.closeTo;
+import static org.junit.Assert.assertThat;
+import org.apache.commons.math3.random.JDKRandomGenerator;
+import org.junit.Test;
+
+/**
+ * Checks the solvers against the plain enumeration of the working units.
+ *
+ * @author Lorenzo Bossi
+ */
+public class SolverTest {
+
+    private static final double TOLERANCE = 1e-9;
+
+    /**
+     * The best working unit as it was computed before the solvers were
+     * introduced: every unit is scored with calculateOverallReputation.
+     */
+    private static Double enumerate(TransitiveTrust tt, ProvidersCollector collector) {
+        Double best = null;
+        double bestReputation = WorkingUnitSolver.MIN_REPUTATION;
+        for (WorkingUnit wu : collector) {
+            if (wu.getProviders().size() <= 1) {
+                continue;
+            }
+            double reputation = tt.calculateOverallReputation(wu);
+            if (reputation > bestReputation) {
+                bestReputation = reputation;
+                best = reputation;
+            }
+        }
+        return best;
+    }
+
+    private static void checkSolver(WorkingUnitSolver solver) {
+        List<Service> services = new ServiceFactory(10).getServices();
+        Random random = new Random(42);
+        for (int seed = 1; seed <= 4; seed++) {
+            DirectedSparseMultigraph<Provider, Trust> graph = TestGraphs.create(seed, services, 30, 5, 300, 200);
+            TransitiveTrust tt = new TransitiveTrust(graph, services);
+            List<Provider> providers = new ArrayList<>(graph.getVertices());
+            for (int query = 0; query < 10; query++) {
+                Provider customer = providers.get(random.nextInt(providers.size()));
+                Set<Service> plan = new HashSet<>();
+                int planSize = 2 + random.nextInt(2);
+                while (plan.size() < planSize) {
+                    plan.add(services.get(random.nextInt(services.size())));
+                }
+                ProvidersCollector collector = tt.collectProviders(customer, plan, 3, 0.5);
+                Double expected = enumerate(tt, collector);
+                Pair<WorkingUnit, Double> result = tt.getWorkingUnit(customer, plan, 3, 0.5, solver);
+                if (expected == null) {
+                    assertThat(result, nullValue());
+                } else {
+                    assertThat(result.second, closeTo(expected, TOLERANCE));
+                    assertThat(tt.calculateOverallReputation(result.first), closeTo(expected, TOLERANCE));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void exhaustive() {
+        checkSolver(new ExhaustiveSolver());
+    }
+
+    @Test
+    public void branchAndBound() {
+        checkSolver(new BranchAndBoundSolver());
+    }
+
+    @Test
+    public void parallelExhaustive() {
+        checkSolver(new ParallelExhaustiveSolver(ForkJoinPool.commonPool(), 16));
+    }
+
+    @Test
+    public void grayCode() {
+        checkSolver(new GrayCodeSolver());
+    }
+
+    @Test
+    public void incrementalScorer() {
+        List<Service> services = new ServiceFactory(10).getServices();
+        DirectedSparseMultigraph<Provider, Trust> graph = TestGraphs.create(7, services, 30, 5, 300, 200);
+        TransitiveTrust tt = new TransitiveTrust(graph, services);
+        Set<Service> plan = new HashSet<>(services.subList(0, 4));
+        Random random = new Random(7);
+        for (Provider customer : graph.getVertices()) {
+            SearchSpace space = new SearchSpace(tt.collectProviders(customer, plan, 3, 0.5));
+            if (space.isEmpty()) {
+                continue;
+            }
+            ReputationMatrix matrix = new ReputationMatrix(space, tt);
+            IncrementalScorer scorer = new IncrementalScorer(matrix);
+            for (int step = 0; step < 200; step++) {
+                int slot = random.nextInt(space.getSlotCount());
+                scorer.set(slot, random.nextInt(space.getCandidateCount(slot)));
+                double expected = space.score(scorer.getChoice(), tt);
+                if (Double.isNaN(expected)) {
+                    assertThat(Double.isNaN(scorer.score()), is(true));
+                } else {
+                    assertThat(scorer.score(), closeTo(expected, TOLERANCE));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void anytimeSearch() {
+        List<Service> services = new ServiceFactory(10).getServices();
+        DirectedSparseMultigraph<Provider, Trust> graph = TestGraphs.create(8, services, 30, 5, 300, 200);
+        TransitiveTrust tt = new TransitiveTrust(graph, services);
+        Set<Service> plan = new HashSet<>(services.subList(0, 4));
+        for (Provider customer : graph.getVertices()) {
+            List<Double> improvements = new ArrayList<>();
+            SearchResult result = tt.searchWorkingUnit(customer, plan, 3, 0.5, new SearchBudget(1, TimeUnit.MINUTES), (wu, reputation) -> improvements.add(reputation));
+            Pair<WorkingUnit, Double> expected = tt.getWorkingUnit(customer, plan, 3, 0.5);
+            assertThat(result.isOptimal(), is(true));
+            if (expected == null) {
+                assertThat(result.getBest(), nullValue());
+                assertThat(improvements.isEmpty(), is(true));
+                continue;
+            }
+            assertThat(result.getBest().second, is(expected.second));
+            assertThat(improvements.get(improvements.size() - 1), is(expected.second));
+            for (int i = 1; i < improvements.size(); i++) {
+                assertThat(improvements.get(i) > improvements.get(i - 1), is(true));
+            }
+
+            SearchBudget cancelled = new SearchBudget();
+            cancelled.cancel();
+            SearchResult stopped = tt.searchWorkingUnits(customer, plan, 3, 0.5, 1, new ExhaustiveSolver(), cancelled, null);
+            if (stopped.isOptimal()) {
+                assertThat(stopped.getBest().second, is(expected.second));
+            } else if (stopped.getBest() != null) {
+                assertThat(stopped.getBest().second <= expected.second, is(true));
+            }
+        }
+
+        // a cancelled search cannot go through billions of working units
+        Provider customer = graph.getVertices().iterator().next();
+        Set<Service> all = new HashSet<>(services);
+        assertThat(new SearchSpace(tt.collectProviders(customer, all, 4, 0.5)).size() > 1000000000L, is(true));
+        SearchBudget cancelled = new SearchBudget();
+        cancelled.cancel();
+        SearchResult stopped = tt.searchWorkingUnits(customer, all, 4, 0.5, 1, new ExhaustiveSolver(), cancelled, null);
+        assertThat(stopped.isOptimal(), is(false));
+        if (stopped.getBest() != null) {
+            assertThat(stopped.getBest().second <= stopped.getUpperBound(), is(true));
+        }
+    }
+
+    @Test
+    public void budgetEndsWhileComputingReputations() {
+        List<Service> services = new ServiceFactory(10).getServices();
+        DirectedSparseMultigraph<Provider, Trust> graph = TestGraphs.create(8, services, 30, 5, 300, 200);
+        SearchBudget[] budget = {new SearchBudget()};
+        int[] searches = {0};
+        // the budget ends after the third shortest path search
+        TransitiveTrust tt = new TransitiveTrust(graph, services) {
+            @Override
+            public double[] getReputations(Provider from, List<Provider> to, Service service) {
+                if (++searches[0] == 3) {
+                    budget[0].cancel();
+                }
+                return super.getReputations(from, to, service);
+            }
+        };
+        Set<Service> plan = new HashSet<>(services);
+        Provider customer = graph.getVertices().iterator().next();
+        SearchSpace space = new SearchSpace(tt.collectProviders(customer, plan, 4, 0.5));
+        assertThat(new ReputationMatrix(space, tt, budget[0]).isComplete(), is(false));
+        assertThat(searches[0], is(3));
+        assertThat(new ReputationMatrix(space, tt, new SearchBudget(1, TimeUnit.MINUTES)).isComplete(), is(true));
+
+        budget[0] = new SearchBudget();
+        searches[0] = 0;
+        SearchResult stopped = tt.searchWorkingUnits(customer, plan, 4, 0.5, 1, new ExhaustiveSolver(), budget[0], null);
+        assertThat(searches[0], is(3));
+        assertThat(stopped.isOptimal(), is(false));
+        assertThat(stopped.getBest(), nullValue());
+        assertThat(stopped.getEvaluations(), is(0L));
+    }
+
+    @Test
+    public void wideBeamIsExact() {
+        checkSolver(new BeamSearchSolver(Integer.MAX_VALUE));
+    }
+
+    @Test
+    public void heuristic() {
+        List<Service> services = new ServiceFactory(10).getServices();
+        DirectedSparseMultigraph<Provider, Trust> graph = TestGraphs.create(9, services, 30, 5, 300, 200);
+        TransitiveTrust tt = new TransitiveTrust(graph, services);
+        Set<Service> plan = new HashSet<>(services.subList(0, 4));
+        for (Provider customer : graph.getVertices()) {
+            Pair<WorkingUnit, Double> optimum = tt.getWorkingUnit(customer, plan, 3, 0.5);
+            SearchResult first = tt.searchWorkingUnits(customer, plan, 3, 0.5, 1, heuristic(11), null, null);
+            SearchResult second = tt.searchWorkingUnits(customer, plan, 3, 0.5, 1, heuristic(11), null, null);
+            if (optimum == null) {
+                assertThat(first.getBest(), nullValue());
+                continue;
+            }
+            double best = first.getBest().second;
+            assertThat(best <= optimum.second + TOLERANCE, is(true));
+            assertThat(best <= first.getUpperBound(), is(true));
+            assertThat(tt.calculateOverallReputation(first.getBest().first), closeTo(best, TOLERANCE));
+            assertThat(second.getBest().second, is(best));
+            if (!first.isOptimal()) {
+                assertThat(first.getGap() >= 0, is(true));
+            }
+        }
+    }
+
+    private static WorkingUnitSolver heuristic(int seed) {
+        JDKRandomGenerator rnd = new JDKRandomGenerator();
+        rnd.setSeed(seed);
+        return new HeuristicSolver(4, new CustomRandom(rnd), 2000);
+    }
+
+    @Test
+    public void adaptive() {
+        checkSolver(new AdaptiveSolver(Long.MAX_VALUE, new BranchAndBoundSolver(), heuristic(1)));
+        AdaptiveSolver adaptive = new AdaptiveSolver(0, new BranchAndBoundSolver(), heuristic(1));
+        List<Service> services = new ServiceFactory(10).getServices();
+        DirectedSparseMultigraph<Provider, Trust> graph = TestGraphs.create(10, services, 30, 5, 300, 200);
+        TransitiveTrust tt = new TransitiveTrust(graph, services);
+        SearchSpace space = new SearchSpace(tt.collectProviders(graph.getVertices().iterator().next(), new HashSet<>(services.subList(0, 2)), 3, 0.5));
+        assertThat(adaptive.select(space) instanceof HeuristicSolver, is(space.size() > 0));
+    }
+
+    @Test
+    public void topWorkingUnits() {
+        List<Service> services = new ServiceFactory(10).getServices();
+        DirectedSparseMultigraph<Provider, Trust> graph = TestGraphs.create(5, services, 30, 5, 300, 200);
+        TransitiveTrust tt = new TransitiveTrust(graph, services);
+        Set<Service> plan = new HashSet<>(services.subList(0, 3));
+        for (Provider customer : graph.getVertices()) {
+            List<Pair<WorkingUnit, Double>> exhaustive = tt.getTopWorkingUnits(customer, plan, 3, 0.5, 5, new ExhaustiveSolver());
+            List<Pair<WorkingUnit, Double>> bnb = tt.getTopWorkingUnits(customer, plan, 3, 0.5, 5);
+            List<Pair<WorkingUnit, Double>> parallel = tt.getTopWorkingUnits(customer, plan, 3, 0.5, 5, new ParallelExhaustiveSolver(ForkJoinPool.commonPool(), 16));
+            assertThat(parallel.size(), is(exhaustive.size()));
+            assertThat(bnb.size(), is(exhaustive.size()));
+            for (int i = 0; i < bnb.size(); i++) {
+                assertThat(bnb.get(i).second, closeTo(exhaustive.get(i).second, TOLERANCE));
+                assertThat(parallel.get(i).first.toString(), is(exhaustive.get(i).first.toString()));
+                if (i > 0) {
+                    assertThat(bnb.get(i).second <= bnb.get(i - 1).second, is(true));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void heuristicTopWorkingUnitsAreDistinct() {
+        List<Service> services = new ServiceFactory(10).getServices();
+        DirectedSparseMultigraph<Provider, Trust> graph = TestGraphs.create(9, services, 30, 5, 300, 200);
+        TransitiveTrust tt = new TransitiveTrust(graph, services);
+        Set<Service> plan = new HashSet<>(services.subList(0, 4));
+        JDKRandomGenerator annealing = new JDKRandomGenerator();
+        annealing.setSeed(12);
+        List<WorkingUnitSolver> solvers = new ArrayList<>();
+        solvers.add(heuristic(11));
+        solvers.add(new AnnealingSolver(new CustomRandom(annealing), 2000));
+        for (WorkingUnitSolver solver : solvers) {
+            for (Provider customer : graph.getVertices()) {
+                List<Pair<WorkingUnit, Double>> top = tt.getTopWorkingUnits(customer, plan, 3, 0.5, 10, solver);
+                Set<String> distinct = new HashSet<>();
+                for (Pair<WorkingUnit, Double> unit : top) {
+                    assertThat(distinct.add(unit.first.toString()), is(true));
+                }
+            }
+        }
+    }
+}
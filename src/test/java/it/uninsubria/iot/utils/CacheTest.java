@@ -0,0 +1,84 @@
+package it.uninsubria.iot.utils;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+import org.junit.Test;
+
+/**
+ *
+ * @author Lorenzo Bossi
+ */
+public class CacheTest {
+
+    @Test
+    public void lruEvictsLeastRecentlyUsed() {
+        Cache<Integer, String> cache = new LruCache<>(2);
+        cache.put(1, "a");
+        cache.put(2, "b");
+        assertThat(cache.get(1), is("a"));
+        cache.put(3, "c");
+        assertThat(cache.get(2), nullValue());
+        assertThat(cache.get(1), is("a"));
+        assertThat(cache.get(3), is("c"));
+
+        CacheStatistics stats = cache.getStatistics();
+        assertThat(stats.getHits(), is(3L));
+        assertThat(stats.getMisses(), is(1L));
+        assertThat(stats.getEvictions(), is(1L));
+        assertThat(stats.getSize(), is(2));
+    }
+
+    @Test
+    public void lfuEvictsLeastFrequentlyUsed() {
+        Cache<Integer, String> cache = new LfuCache<>(2);
+        cache.put(1, "a");
+        cache.put(2, "b");
+        cache.get(1);
+        cache.get(1);
+        cache.get(2);
+        cache.put(3, "c");
+        assertThat(cache.get(2), nullValue());
+        assertThat(cache.get(1), is("a"));
+        assertThat(cache.get(3), is("c"));
+        cache.put(4, "d");
+        assertThat(cache.get(3), nullValue());
+        assertThat(cache.get(4), is("d"));
+        assertThat(cache.getStatistics().getEvictions(), is(2L));
+    }
+
+    @Test(timeout = 5000)
+    public void lfuEvictsBelowProtectedKey() {
+        Cache<String, Integer> cache = new LfuCache<>(10, Integer::intValue);
+        cache.put("A", 3);
+        for (int i = 0; i < 4; i++) {
+            cache.get("A");
+        }
+        cache.put("B", 1);
+        for (int i = 0; i < 9; i++) {
+            cache.get("B");
+        }
+        cache.put("K", 7);
+        assertThat(cache.get("A"), nullValue());
+        cache.put("B", 4);
+        assertThat(cache.get("K"), nullValue());
+        assertThat(cache.get("B"), is(4));
+        assertThat(cache.getStatistics().getEvictions(), is(2L));
+    }
+
+    @Test
+    public void weightBudget() {
+        Cache<Integer, String> cache = new LruCache<>(5, String::length);
+        cache.put(1, "aa");
+        cache.put(2, "bb");
+        cache.put(3, "cc");
+        assertThat(cache.size(), is(2));
+        assertThat(cache.get(1), nullValue());
+        cache.put(4, "too long");
+        assertThat(cache.get(4), nullValue());
+        assertThat(cache.getStatistics().getWeight(), is(4L));
+        cache.clear();
+        assertThat(cache.size(), is(0));
+        assertThat(cache.getStatistics().getWeight(), is(0L));
+    }
+}
@@ -4,9 +4,11 @@ import it.uninsubria.iot.entities.Provider;
 import it.uninsubria.iot.entities.Service;
 import it.uninsubria.iot.entities.ServiceFactory;
 import it.uninsubria.iot.entities.WorkingUnit;
+import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.Spliterator;
 import static org.hamcrest.CoreMatchers.is;
 import static org.junit.Assert.assertThat;
 import org.junit.Test;
@@ -73,4 +75,32 @@ public class ProvidersCollectorTest {
         assertThat(counter, is(6));
 
     }
+
+    @Test
+    public void spliteratorTest() {
+        List<Service> services = new ServiceFactory(10).getServices();
+
+        Set<Service> workingPlan = new HashSet<Service>();
+        workingPlan.add(services.get(0));
+        workingPlan.add(services.get(1));
+        workingPlan.add(services.get(2));
+
+        ProvidersCollector collector = new ProvidersCollector(workingPlan, 1);
+        for (int i = 0; i < 5; i++) {
+            collector.addProvider(new Provider("p" + i, workingPlan));
+        }
+
+        List<String> expected = new ArrayList<>();
+        for (WorkingUnit wu : collector) {
+            expected.add(wu.toString());
+        }
+        Spliterator<WorkingUnit> suffix = collector.spliterator();
+        assertThat(suffix.estimateSize(), is(125L));
+        Spliterator<WorkingUnit> prefix = suffix.trySplit();
+        assertThat(prefix.estimateSize() + suffix.estimateSize(), is(125L));
+        List<String> actual = new ArrayList<>();
+        prefix.forEachRemaining(wu -> actual.add(wu.toString()));
+        suffix.forEachRemaining(wu -> actual.add(wu.toString()));
+        assertThat(actual, is(expected));
+    }
 }
@@ -0,0 +1,68 @@
+package it.uninsubria.iot.utils;
+
+import java.util.Arrays;
+import java.util.List;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.Matchers.closeTo;
+import static org.junit.Assert.assertThat;
+import org.apache.commons.math3.random.JDKRandomGenerator;
+import org.junit.Test;
+
+/**
+ *
+ * @author Lorenzo Bossi
+ */
+public class RandomPickupTest {
+
+    private static final int PICKS = 200000;
+
+    private static CustomRandom createRandom() {
+        JDKRandomGenerator rnd = new JDKRandomGenerator();
+        rnd.setSeed(42);
+        return new CustomRandom(rnd);
+    }
+
+    @Test
+    public void proportionalPickup() {
+        List<String> elements = Arrays.asList("a", "b", "c", "d", "e");
+        int[] scales = {1, 0, 3, 6, 10};
+        ProportionalRandomPickup<String> pickup = new ProportionalRandomPickup<>(createRandom(), elements, el -> scales[elements.indexOf(el)]);
+        int[] counts = new int[elements.size()];
+        for (int i = 0; i < PICKS; i++) {
+            counts[elements.indexOf(pickup.getNext())]++;
+        }
+        assertThat(counts[1], is(0));
+        for (int i = 0; i < counts.length; i++) {
+            assertThat((double) counts[i] / PICKS, closeTo(scales[i] / 20.0, 0.01));
+        }
+    }
+
+    @Test
+    public void fenwickPickup() {
+        int[] weights = {4, 0, 1, 7, 0, 3, 5};
+        FenwickRandomPickup pickup = new FenwickRandomPickup(createRandom(), weights);
+        assertThat(pickup.getTotal(), is(20L));
+        pickup.add(0, -4);
+        pickup.set(4, 8);
+        pickup.add(6, 2);
+        weights[0] = 0;
+        weights[4] = 8;
+        weights[6] = 7;
+        assertThat(pickup.getTotal(), is(26L));
+        int[] counts = new int[weights.length];
+        for (int i = 0; i < PICKS; i++) {
+            counts[pickup.getNext()]++;
+        }
+        for (int i = 0; i < counts.length; i++) {
+            assertThat(pickup.getWeight(i), is(weights[i]));
+            assertThat((double) counts[i] / PICKS, closeTo(weights[i] / 26.0, 0.01));
+        }
+        assertThat(counts[0], is(0));
+        assertThat(counts[1], is(0));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void negativeWeight() {
+        new FenwickRandomPickup(createRandom(), new int[]{1, 2}).add(0, -2);
+    }
+}